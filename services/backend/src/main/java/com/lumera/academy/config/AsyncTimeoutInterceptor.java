@@ -0,0 +1,48 @@
+package com.lumera.academy.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Gives a streamed response its own timeout instead of spring.mvc.async.request-timeout. The
+ * handler calls {@link #setTimeout} before returning its {@code StreamingResponseBody}, and may
+ * register {@link #onCompletion} cleanup that runs however the async request ends, including a
+ * timeout before the body was ever written.
+ */
+@Component
+public class AsyncTimeoutInterceptor implements CallableProcessingInterceptor {
+
+    private static final String TIMEOUT_ATTRIBUTE = AsyncTimeoutInterceptor.class.getName() + ".timeout";
+    private static final String COMPLETION_ATTRIBUTE = AsyncTimeoutInterceptor.class.getName() + ".completion";
+
+    public static void setTimeout(HttpServletRequest request, Duration timeout) {
+        request.setAttribute(TIMEOUT_ATTRIBUTE, timeout.toMillis());
+    }
+
+    public static void onCompletion(HttpServletRequest request, Runnable callback) {
+        request.setAttribute(COMPLETION_ATTRIBUTE, callback);
+    }
+
+    // Runs after the default timeout is applied and before the async request starts
+    @Override
+    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+        if (request instanceof AsyncWebRequest asyncRequest
+                && request.getAttribute(TIMEOUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Long timeout) {
+            asyncRequest.setTimeout(timeout);
+        }
+    }
+
+    @Override
+    public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+        if (request.getAttribute(COMPLETION_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Runnable callback) {
+            callback.run();
+        }
+    }
+}
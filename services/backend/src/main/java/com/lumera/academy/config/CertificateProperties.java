@@ -0,0 +1,177 @@
+package com.lumera.academy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.certificates")
+@Getter
+@Setter
+public class CertificateProperties {
+
+    private final Issuance issuance = new Issuance();
+
+    private final Bulk bulk = new Bulk();
+
+    private final PdfCache pdfCache = new PdfCache();
+
+    private final Verification verification = new Verification();
+
+    private final Export export = new Export();
+
+    @Getter
+    @Setter
+    public static class Issuance {
+
+        /**
+         * Number of worker threads issuing certificates.
+         */
+        private int workers = 2;
+
+        /**
+         * Maximum number of completions waiting for a worker. Overflow is picked up by the sweep.
+         */
+        private int queueCapacity = 1000;
+
+        /**
+         * Attempts per completion before it is left to the sweep.
+         */
+        private int maxAttempts = 5;
+
+        /**
+         * Delay before the first retry in milliseconds, doubled on every further attempt.
+         */
+        private long retryBackoffMs = 1000;
+
+        /**
+         * Delay between sweeps for completed classes that still have no certificate, in milliseconds.
+         */
+        private long sweepIntervalMs = 300000;
+
+        /**
+         * Maximum number of completions enqueued by one sweep.
+         */
+        private int sweepBatchSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class Bulk {
+
+        /**
+         * Number of ended classes waiting for bulk issuance. Overflow is picked up by the sweep.
+         */
+        private int queueCapacity = 100;
+
+        /**
+         * Number of threads pre-rendering the PDFs of a bulk issuance.
+         */
+        private int renderThreads = 4;
+
+        /**
+         * Delay between sweeps for ended classes with eligible enrollments still missing a certificate,
+         * in milliseconds.
+         */
+        private long sweepIntervalMs = 600000;
+
+        /**
+         * Maximum number of classes enqueued by one sweep.
+         */
+        private int sweepBatchSize = 50;
+    }
+
+    @Getter
+    @Setter
+    public static class PdfCache {
+
+        /**
+         * Directory holding rendered certificate PDFs.
+         */
+        private String directory = System.getProperty("java.io.tmpdir") + "/lumera-certificates";
+
+        /**
+         * Total size of cached PDFs in bytes before the least recently used ones are evicted.
+         */
+        private long maxSizeBytes = 268435456;
+    }
+
+    @Getter
+    @Setter
+    public static class Verification {
+
+        /**
+         * Number of certificates the Bloom filter is sized for. It is resized on the next rebuild
+         * once the table grows past half of this.
+         */
+        private long expectedCertificates = 1000000;
+
+        /**
+         * Share of unknown numbers that the Bloom filter lets through to the database.
+         */
+        private double falsePositiveRate = 0.01;
+
+        /**
+         * Maximum number of verified certificates held in memory.
+         */
+        private int maxEntries = 10000;
+
+        /**
+         * How long a cached certificate is served before it is reloaded, in milliseconds. Bounds
+         * how late another node's revocation is seen.
+         */
+        private long ttlMs = 300000;
+
+        /**
+         * Maximum number of unknown numbers remembered after passing the Bloom filter.
+         */
+        private int maxNegativeEntries = 10000;
+
+        /**
+         * How long an unknown number is remembered, in milliseconds.
+         */
+        private long negativeTtlMs = 60000;
+
+        /**
+         * Delay between pulls of certificates issued on other nodes into the Bloom filter, in milliseconds.
+         */
+        private long refreshIntervalMs = 30000;
+
+        /**
+         * When to rebuild the Bloom filter from scratch, dropping deleted certificates.
+         */
+        private String rebuildCron = "0 15 4 * * *";
+    }
+
+    @Getter
+    @Setter
+    public static class Export {
+
+        /**
+         * Number of threads rendering PDFs for ZIP exports, shared by all exports.
+         */
+        private int renderThreads = 4;
+
+        /**
+         * Certificates of one export rendered ahead of the one being written.
+         */
+        private int window = 8;
+
+        /**
+         * Certificates read from the database per query.
+         */
+        private int pageSize = 200;
+
+        /**
+         * Exports streaming at the same time; further requests are answered with 429.
+         */
+        private int maxConcurrent = 4;
+
+        /**
+         * How long an export may stream before it is cut off, in seconds. Replaces
+         * spring.mvc.async.request-timeout for the export endpoint.
+         */
+        private int timeoutSeconds = 1800;
+    }
+}
@@ -0,0 +1,65 @@
+package com.lumera.academy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.earnings-reports")
+@Getter
+@Setter
+public class EarningsReportProperties {
+
+    /**
+     * Number of threads rendering earnings reports.
+     */
+    private int workers = 2;
+
+    /**
+     * Report jobs waiting for a worker before new submissions are answered with 429.
+     */
+    private int queueCapacity = 20;
+
+    /**
+     * Directory holding rendered reports, one file per educator and earnings version.
+     */
+    private String directory = System.getProperty("java.io.tmpdir") + "/lumera-earnings-reports";
+
+    /**
+     * How long a rendered report is kept without being downloaded, in hours.
+     */
+    private int retentionHours = 24;
+
+    /**
+     * How long a finished job can still be polled, in minutes.
+     */
+    private int jobRetentionMinutes = 60;
+
+    /**
+     * How long the legacy synchronous download waits for its report job, in seconds. The wait
+     * holds no request thread, but should stay below spring.mvc.async.request-timeout.
+     */
+    private int syncWaitSeconds = 60;
+
+    /**
+     * Rows read per query when exporting the full transaction history.
+     */
+    private int exportPageSize = 500;
+
+    /**
+     * Full-history exports streaming at once before new ones are answered with 429.
+     */
+    private int maxConcurrentExports = 4;
+
+    /**
+     * How long a full-history export may stream before it is cut off, in seconds. Replaces
+     * spring.mvc.async.request-timeout for the export endpoints.
+     */
+    private int exportTimeoutSeconds = 1800;
+
+    /**
+     * Value of the Retry-After header when the job queue or the export limit is full.
+     */
+    private long retryAfterSeconds = 10;
+}
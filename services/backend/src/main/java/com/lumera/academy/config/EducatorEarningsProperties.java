@@ -0,0 +1,34 @@
+package com.lumera.academy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.educator-earnings")
+@Getter
+@Setter
+public class EducatorEarningsProperties {
+
+    /**
+     * When the earnings rollup is recounted from enrollments.
+     */
+    private String rebuildCron = "0 45 3 * * *";
+
+    /**
+     * Length of the current and previous period compared on the dashboard, in days.
+     */
+    private int periodDays = 30;
+
+    /**
+     * How long an earnings summary or series is served from memory. Changes made on this node evict it
+     * right away; this bounds how stale changes made elsewhere can be.
+     */
+    private long cacheTtlSeconds = 60;
+
+    /**
+     * Summaries and series kept in memory, across all educators.
+     */
+    private int cacheMaxEntries = 10000;
+}
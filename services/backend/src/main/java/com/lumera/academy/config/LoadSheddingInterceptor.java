@@ -0,0 +1,50 @@
+package com.lumera.academy.config;
+
+import com.lumera.academy.exception.ServiceOverloadedException;
+import com.lumera.academy.service.DatabasePoolMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Admission control for {@link LowPriorityWrite} handlers. Runs before the handler (and its
+ * user lookup) so shed requests never wait for a connection themselves.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LoadSheddingInterceptor implements HandlerInterceptor {
+
+    private final LoadSheddingProperties properties;
+    private final DatabasePoolMonitor poolMonitor;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!properties.isEnabled()
+                || !(handler instanceof HandlerMethod method)
+                || !method.hasMethodAnnotation(LowPriorityWrite.class)
+                || !isOverloaded()) {
+            return true;
+        }
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        meterRegistry.counter("http.server.requests.shed",
+                "uri", pattern != null ? pattern.toString() : "UNKNOWN").increment();
+        log.debug("Shedding {} {} - connection pool saturated", request.getMethod(), request.getRequestURI());
+        throw new ServiceOverloadedException("Server is busy, please retry later", properties.getRetryAfterSeconds());
+    }
+
+    private boolean isOverloaded() {
+        if (poolMonitor.threadsAwaitingConnection() >= properties.getMaxThreadsAwaiting()) {
+            return true;
+        }
+        return poolMonitor.isExhausted() && poolMonitor.recentAcquireWaitMillis() >= properties.getMaxAcquireWaitMs();
+    }
+}
@@ -0,0 +1,33 @@
+package com.lumera.academy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.load-shedding")
+@Getter
+@Setter
+public class LoadSheddingProperties {
+
+    /**
+     * Reject low-priority writes with 429 while the connection pool is saturated.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Shed once this many threads are waiting for a connection.
+     */
+    private int maxThreadsAwaiting = 2;
+
+    /**
+     * Shed while every connection is in use and recent connection acquisition took at least this long.
+     */
+    private long maxAcquireWaitMs = 500;
+
+    /**
+     * Value of the Retry-After header sent with shed requests.
+     */
+    private long retryAfterSeconds = 5;
+}
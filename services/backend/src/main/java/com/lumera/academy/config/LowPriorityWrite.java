@@ -0,0 +1,17 @@
+package com.lumera.academy.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler whose requests may be rejected with 429 while the database pool is saturated,
+ * because the client retries them anyway (e.g. playback heartbeats).
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LowPriorityWrite {
+}
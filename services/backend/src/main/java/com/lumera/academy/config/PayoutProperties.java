@@ -0,0 +1,76 @@
+package com.lumera.academy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+@Component
+@ConfigurationProperties(prefix = "app.payouts")
+@Getter
+@Setter
+public class PayoutProperties {
+
+    /**
+     * When educator payouts are run.
+     */
+    private String cron = "0 0 6 * * MON";
+
+    /**
+     * Time zone the payout cron is evaluated in.
+     */
+    private String zone = "UTC";
+
+    /**
+     * Whether this node runs scheduled payouts at all. Off unless a payment processor is configured.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Educators whose payouts are created in one transaction; the run checkpoints after each chunk.
+     */
+    private int chunkSize = 500;
+
+    /**
+     * Payouts claimed and sent to the payment processor at a time.
+     */
+    private int claimBatchSize = 100;
+
+    /**
+     * Threads sending payouts to the payment processor.
+     */
+    private int processorThreads = 4;
+
+    /**
+     * Attempts per payout when the processor errors before it is marked failed.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Delay before a payout the processor errored on is sent again, in seconds; doubled for
+     * every further attempt.
+     */
+    private long retryBackoffSeconds = 60;
+
+    /**
+     * How often unfinished runs are checked for payouts due for a retry, in milliseconds.
+     */
+    private long retryIntervalMs = 60000;
+
+    /**
+     * Unpaid earnings below this amount are carried over to the next run.
+     */
+    private BigDecimal minimumAmount = new BigDecimal("1.00");
+
+    /**
+     * How long a node holds a run without checkpointing before another node may take it over, in seconds.
+     */
+    private long leaseSeconds = 300;
+
+    /**
+     * How long a payout may stay PROCESSING before it is sent again, in minutes.
+     */
+    private long staleProcessingMinutes = 30;
+}
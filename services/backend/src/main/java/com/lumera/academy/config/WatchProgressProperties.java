@@ -0,0 +1,102 @@
+package com.lumera.academy.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.watch-progress")
+@Getter
+@Setter
+public class WatchProgressProperties {
+
+    private final WriteBehind writeBehind = new WriteBehind();
+
+    private final Stream stream = new Stream();
+
+    private final Cadence cadence = new Cadence();
+
+    @Getter
+    @Setter
+    public static class WriteBehind {
+
+        /**
+         * Fold heartbeats into memory and persist them in periodic batches instead of per request.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Delay between batch flushes in milliseconds.
+         */
+        private long flushIntervalMs = 5000;
+
+        /**
+         * Maximum number of buffered (user, class) entries before a flush is forced on the caller.
+         */
+        private int maxBufferedEntries = 10000;
+    }
+
+    @Getter
+    @Setter
+    public static class Stream {
+
+        /**
+         * Maximum lifetime of a streaming playback session in milliseconds. A session also ends
+         * when the access token it was opened with expires.
+         */
+        private long sessionTimeoutMs = 14400000;
+
+        /**
+         * Playback sessions a single user may hold open at once.
+         */
+        private int maxSessionsPerUser = 3;
+
+        /**
+         * Playback sessions this node holds open at once, across all users.
+         */
+        private int maxSessions = 5000;
+    }
+
+    @Getter
+    @Setter
+    public static class Cadence {
+
+        /**
+         * Heartbeat interval suggested to players while the database is idle.
+         */
+        private int baseIntervalSeconds = 10;
+
+        /**
+         * Shortest interval suggested, used when a viewer is about to reach the completion threshold.
+         */
+        private int minIntervalSeconds = 5;
+
+        /**
+         * Longest interval suggested. Must stay below the coverage gap that is still credited as
+         * continuous playback, or stretched heartbeats would stop counting as watched time.
+         */
+        private int maxIntervalSeconds = 120;
+
+        /**
+         * Pool pressure (in use plus waiting, relative to pool size) at which cadence starts to stretch.
+         */
+        private double pressureLow = 0.5;
+
+        /**
+         * Pool pressure at which the maximum interval is suggested.
+         */
+        private double pressureHigh = 0.9;
+
+        /**
+         * Fleet-wide multiplier applied on top of the pressure-based interval.
+         */
+        private double stretchFactor = 1.0;
+
+        /**
+         * Heartbeats that moved less than this many seconds since the last persisted one are
+         * acknowledged without a write.
+         */
+        private int minPersistDeltaSeconds = 5;
+    }
+}
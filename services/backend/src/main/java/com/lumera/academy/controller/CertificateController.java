@@ -0,0 +1,92 @@
+package com.lumera.academy.controller;
+
+import com.lumera.academy.dto.CertificateDTO;
+import com.lumera.academy.entity.User;
+import com.lumera.academy.exception.ResourceNotFoundException;
+import com.lumera.academy.repository.UserRepository;
+import com.lumera.academy.security.SecurityUtils;
+import com.lumera.academy.service.CertificatePdfCache.CertificatePdf;
+import com.lumera.academy.service.CertificateService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/v1/certificates")
+@RequiredArgsConstructor
+@Tag(name = "Certificates", description = "Certificate download and public verification endpoints")
+public class CertificateController {
+
+    private final CertificateService certificateService;
+    private final UserRepository userRepository;
+    private final SecurityUtils securityUtils;
+
+    @GetMapping("/verify/{certificateNumber}")
+    @Operation(summary = "Verify a certificate by its number")
+    public ResponseEntity<CertificateDTO> verifyCertificate(@PathVariable String certificateNumber) {
+        return ResponseEntity.ok(certificateService.getCertificateByNumber(certificateNumber));
+    }
+
+    @GetMapping("/verify/{certificateNumber}/pdf")
+    @Operation(summary = "Download a certificate PDF by its number")
+    public ResponseEntity<StreamingResponseBody> downloadVerifiedPdf(@PathVariable String certificateNumber, WebRequest webRequest) {
+        CertificatePdf pdf = certificateService.generateCertificatePdfByNumber(certificateNumber);
+        return pdfResponse(pdf, certificateNumber, webRequest);
+    }
+
+    @GetMapping("/{id}/pdf")
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "Download one of the current user's certificates, or one issued for their class")
+    public ResponseEntity<StreamingResponseBody> downloadPdf(
+            @PathVariable UUID id,
+            @AuthenticationPrincipal Jwt jwt,
+            WebRequest webRequest
+    ) {
+        if (!certificateService.canAccess(id, getCurrentUserId(jwt))) {
+            throw new AccessDeniedException("Not your certificate");
+        }
+        CertificatePdf pdf = certificateService.generateCertificatePdf(id);
+        return pdfResponse(pdf, id.toString(), webRequest);
+    }
+
+    private ResponseEntity<StreamingResponseBody> pdfResponse(CertificatePdf pdf, String name, WebRequest webRequest) {
+        // The ETag is the content hash of the cached file, so it is a strong validator
+        if (webRequest.checkNotModified(pdf.etag())) {
+            pdf.close();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(pdf.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(pdf.etag())
+                .contentType(MediaType.APPLICATION_PDF)
+                .contentLength(pdf.size())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                        .filename("certificate-" + name + ".pdf")
+                        .build()
+                        .toString())
+                .body(pdf::writeTo);
+    }
+
+    private UUID getCurrentUserId(Jwt jwt) {
+        String email = securityUtils.getEmailFromJwt(jwt);
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "email", email));
+        return user.getId();
+    }
+}
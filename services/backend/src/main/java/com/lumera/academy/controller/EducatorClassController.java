@@ -1,24 +1,31 @@
 package com.lumera.academy.controller;
 
+import com.lumera.academy.config.AsyncTimeoutInterceptor;
 import com.lumera.academy.dto.CreateLiveClassRequest;
 import com.lumera.academy.dto.LiveClassDTO;
 import com.lumera.academy.dto.LiveClassFilter;
 import com.lumera.academy.entity.LiveClass;
 import com.lumera.academy.security.SecurityUtils;
+import com.lumera.academy.service.CertificateExportService;
 import com.lumera.academy.service.LiveClassService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -31,6 +38,7 @@ import java.util.UUID;
 public class EducatorClassController {
 
     private final LiveClassService liveClassService;
+    private final CertificateExportService certificateExportService;
     private final SecurityUtils securityUtils;
 
     @GetMapping
@@ -130,4 +138,25 @@ public class EducatorClassController {
         liveClassService.endClassByEmail(id, email, recordingUrl);
         return ResponseEntity.ok().build();
     }
+
+    @GetMapping(value = "/{id}/certificates/export", produces = "application/zip")
+    @Operation(summary = "Download every valid certificate of one of my classes as a ZIP archive")
+    public ResponseEntity<StreamingResponseBody> exportCertificates(
+            @PathVariable UUID id,
+            @AuthenticationPrincipal Jwt jwt,
+            HttpServletRequest request
+    ) {
+        String email = securityUtils.getEmailFromJwt(jwt);
+        StreamingResponseBody archive = certificateExportService.exportClassCertificates(id, email,
+                release -> AsyncTimeoutInterceptor.onCompletion(request, release));
+        AsyncTimeoutInterceptor.setTimeout(request, certificateExportService.getTimeout());
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("certificates-" + id + ".zip")
+                        .build()
+                        .toString())
+                .body(archive);
+    }
 }
@@ -1,10 +1,19 @@
 package com.lumera.academy.controller;
 
+import com.lumera.academy.config.AsyncTimeoutInterceptor;
+import com.lumera.academy.dto.EarningsSeriesDTO;
+import com.lumera.academy.dto.EarningsSummaryDTO;
+import com.lumera.academy.dto.ReportJobDTO;
 import com.lumera.academy.security.SecurityUtils;
-import com.lumera.academy.service.EarningsReportService;
+import com.lumera.academy.service.EarningsExportService;
+import com.lumera.academy.service.EarningsReportJobService;
+import com.lumera.academy.service.EarningsReportJobService.Report;
+import com.lumera.academy.service.EducatorEarningsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -12,9 +21,14 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/v1/educator/earnings")
@@ -23,15 +37,103 @@ import java.time.format.DateTimeFormatter;
 @Tag(name = "Educator Earnings", description = "Educator earnings and reports endpoints")
 public class EducatorEarningsController {
 
-    private final EarningsReportService earningsReportService;
+    private final EarningsReportJobService earningsReportJobService;
+    private final EarningsExportService earningsExportService;
+    private final EducatorEarningsService educatorEarningsService;
     private final SecurityUtils securityUtils;
 
+    @GetMapping("/summary")
+    @Operation(summary = "Get current against previous period earnings, pending payout and next payout date")
+    public ResponseEntity<EarningsSummaryDTO> getSummary(@AuthenticationPrincipal Jwt jwt) {
+        String email = securityUtils.getEmailFromJwt(jwt);
+        return ResponseEntity.ok(educatorEarningsService.getSummary(email));
+    }
+
+    @GetMapping("/series")
+    @Operation(summary = "Get completed earnings per day, week or month, with empty periods as zero")
+    public ResponseEntity<EarningsSeriesDTO> getSeries(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @AuthenticationPrincipal Jwt jwt) {
+        String email = securityUtils.getEmailFromJwt(jwt);
+        return ResponseEntity.ok(educatorEarningsService.getSeries(email, granularity, from, to));
+    }
+
     @GetMapping("/report/pdf")
-    @Operation(summary = "Download earnings report as PDF")
-    public ResponseEntity<byte[]> downloadEarningsReport(@AuthenticationPrincipal Jwt jwt) {
+    @Operation(summary = "Download earnings report as PDF, waiting for it to render")
+    public DeferredResult<ResponseEntity<StreamingResponseBody>> downloadEarningsReport(@AuthenticationPrincipal Jwt jwt) {
+        String email = securityUtils.getEmailFromJwt(jwt);
+        DeferredResult<ResponseEntity<StreamingResponseBody>> result = new DeferredResult<>();
+        earningsReportJobService.awaitReport(email).whenComplete((report, e) -> {
+            if (e != null) {
+                result.setErrorResult(e);
+            } else if (!result.setResult(reportResponse(report))) {
+                // The request already timed out or the client went away
+                report.close();
+            }
+        });
+        return result;
+    }
+
+    @PostMapping("/report/jobs")
+    @Operation(summary = "Start rendering the earnings report, or join the job already rendering it")
+    public ResponseEntity<ReportJobDTO> submitReportJob(@AuthenticationPrincipal Jwt jwt) {
+        String email = securityUtils.getEmailFromJwt(jwt);
+        ReportJobDTO job = earningsReportJobService.submit(email);
+        return ResponseEntity.accepted()
+            .location(URI.create("/v1/educator/earnings/report/jobs/" + job.getId()))
+            .body(job);
+    }
+
+    @GetMapping("/report/jobs/{jobId}")
+    @Operation(summary = "Get the status of an earnings report job")
+    public ResponseEntity<ReportJobDTO> getReportJob(@PathVariable UUID jobId, @AuthenticationPrincipal Jwt jwt) {
+        String email = securityUtils.getEmailFromJwt(jwt);
+        return ResponseEntity.ok(earningsReportJobService.getJob(jobId, email));
+    }
+
+    @GetMapping("/report/jobs/{jobId}/pdf")
+    @Operation(summary = "Download the earnings report of a completed job")
+    public ResponseEntity<StreamingResponseBody> downloadReportJob(
+            @PathVariable UUID jobId,
+            @AuthenticationPrincipal Jwt jwt) {
         String email = securityUtils.getEmailFromJwt(jwt);
-        byte[] pdfBytes = earningsReportService.generateEarningsReport(email);
+        return reportResponse(earningsReportJobService.getReport(jobId, email));
+    }
+
+    @GetMapping("/export/csv")
+    @Operation(summary = "Download the full transaction history as CSV")
+    public ResponseEntity<StreamingResponseBody> exportCsv(@AuthenticationPrincipal Jwt jwt, HttpServletRequest request) {
+        String email = securityUtils.getEmailFromJwt(jwt);
+        return exportResponse(earningsExportService.exportCsv(email),
+            new MediaType("text", "csv", StandardCharsets.UTF_8), "csv", request);
+    }
+
+    @GetMapping("/export/pdf")
+    @Operation(summary = "Download the full transaction history as PDF")
+    public ResponseEntity<StreamingResponseBody> exportPdf(@AuthenticationPrincipal Jwt jwt, HttpServletRequest request) {
+        String email = securityUtils.getEmailFromJwt(jwt);
+        return exportResponse(earningsExportService.exportPdf(email), MediaType.APPLICATION_PDF, "pdf", request);
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportResponse(StreamingResponseBody body, MediaType mediaType,
+                                                                 String extension, HttpServletRequest request) {
+        AsyncTimeoutInterceptor.setTimeout(request, earningsExportService.getTimeout());
+        String filename = String.format("earnings-history-%s.%s",
+            LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE), extension);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(mediaType);
+        headers.setContentDispositionFormData("attachment", filename);
+        headers.setCacheControl("no-store");
+
+        return ResponseEntity.ok()
+            .headers(headers)
+            .body(body);
+    }
 
+    private ResponseEntity<StreamingResponseBody> reportResponse(Report report) {
         String filename = String.format("earnings-report-%s.pdf",
             LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE));
 
@@ -39,9 +141,10 @@ public class EducatorEarningsController {
         headers.setContentType(MediaType.APPLICATION_PDF);
         headers.setContentDispositionFormData("attachment", filename);
         headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+        headers.setContentLength(report.size());
 
         return ResponseEntity.ok()
             .headers(headers)
-            .body(pdfBytes);
+            .body(report::writeTo);
     }
 }
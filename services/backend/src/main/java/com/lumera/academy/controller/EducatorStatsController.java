@@ -1,11 +1,13 @@
 package com.lumera.academy.controller;
 
+import com.lumera.academy.dto.ClassRetentionDTO;
+import com.lumera.academy.entity.EducatorStats;
 import com.lumera.academy.entity.User;
 import com.lumera.academy.exception.ResourceNotFoundException;
 import com.lumera.academy.repository.UserRepository;
 import com.lumera.academy.security.SecurityUtils;
-import com.lumera.academy.service.CertificateService;
-import com.lumera.academy.service.WatchProgressService;
+import com.lumera.academy.service.ClassRetentionService;
+import com.lumera.academy.service.EducatorStatsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.Builder;
@@ -16,6 +18,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -28,38 +31,42 @@ import java.util.UUID;
 @Tag(name = "Educator Stats", description = "Educator dashboard statistics endpoints")
 public class EducatorStatsController {
 
-    private final CertificateService certificateService;
-    private final WatchProgressService watchProgressService;
+    private final EducatorStatsService educatorStatsService;
+    private final ClassRetentionService classRetentionService;
     private final UserRepository userRepository;
     private final SecurityUtils securityUtils;
 
     @GetMapping("/certificates")
     @Operation(summary = "Get certificate statistics for educator")
     public ResponseEntity<CertificateStatsDTO> getCertificateStats(@AuthenticationPrincipal Jwt jwt) {
-        UUID educatorId = getCurrentEducatorId(jwt);
-        long certificateCount = certificateService.countEducatorCertificates(educatorId);
-        long completionCount = watchProgressService.getEducatorCompletionCount(educatorId);
+        EducatorStats stats = educatorStatsService.getStats(getCurrentEducatorId(jwt));
 
         return ResponseEntity.ok(CertificateStatsDTO.builder()
-                .certificatesIssued(certificateCount)
-                .classCompletions(completionCount)
+                .certificatesIssued(stats.getCertificatesIssued())
+                .classCompletions(stats.getClassCompletions())
                 .build());
     }
 
     @GetMapping("/overview")
     @Operation(summary = "Get all dashboard statistics for educator")
     public ResponseEntity<EducatorDashboardStatsDTO> getDashboardStats(@AuthenticationPrincipal Jwt jwt) {
-        UUID educatorId = getCurrentEducatorId(jwt);
-
-        long certificateCount = certificateService.countEducatorCertificates(educatorId);
-        long completionCount = watchProgressService.getEducatorCompletionCount(educatorId);
+        EducatorStats stats = educatorStatsService.getStats(getCurrentEducatorId(jwt));
 
         return ResponseEntity.ok(EducatorDashboardStatsDTO.builder()
-                .certificatesIssued(certificateCount)
-                .classCompletions(completionCount)
+                .certificatesIssued(stats.getCertificatesIssued())
+                .classCompletions(stats.getClassCompletions())
                 .build());
     }
 
+    @GetMapping("/classes/{classId}/retention")
+    @Operation(summary = "Get the drop-off and retention curve of a class")
+    public ResponseEntity<ClassRetentionDTO> getClassRetention(
+            @PathVariable UUID classId,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(classRetentionService.getRetention(classId, getCurrentEducatorId(jwt)));
+    }
+
     private UUID getCurrentEducatorId(Jwt jwt) {
         String email = securityUtils.getEmailFromJwt(jwt);
         User user = userRepository.findByEmail(email)
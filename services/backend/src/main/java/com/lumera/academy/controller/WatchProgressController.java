@@ -1,21 +1,27 @@
 package com.lumera.academy.controller;
 
+import com.lumera.academy.config.LowPriorityWrite;
+import com.lumera.academy.dto.BatchWatchProgressRequest;
 import com.lumera.academy.dto.UpdateWatchProgressRequest;
+import com.lumera.academy.dto.WatchProgressBatchResultDTO;
 import com.lumera.academy.dto.WatchProgressDTO;
 import com.lumera.academy.entity.User;
 import com.lumera.academy.exception.ResourceNotFoundException;
 import com.lumera.academy.repository.UserRepository;
 import com.lumera.academy.security.SecurityUtils;
+import com.lumera.academy.service.PlaybackStreamService;
 import com.lumera.academy.service.WatchProgressService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.UUID;
@@ -27,6 +33,7 @@ import java.util.UUID;
 public class WatchProgressController {
 
     private final WatchProgressService watchProgressService;
+    private final PlaybackStreamService playbackStreamService;
     private final UserRepository userRepository;
     private final SecurityUtils securityUtils;
 
@@ -63,6 +70,7 @@ public class WatchProgressController {
 
     @PostMapping
     @PreAuthorize("isAuthenticated()")
+    @LowPriorityWrite
     @Operation(summary = "Update watch progress (called periodically during video playback)")
     public ResponseEntity<WatchProgressDTO> updateProgress(
             @AuthenticationPrincipal Jwt jwt,
@@ -72,6 +80,30 @@ public class WatchProgressController {
         return ResponseEntity.ok(watchProgressService.updateProgress(userId, request));
     }
 
+    @PostMapping("/batch")
+    @PreAuthorize("isAuthenticated()")
+    @LowPriorityWrite
+    @Operation(summary = "Apply buffered watch progress samples (e.g. after offline playback) in one request")
+    public ResponseEntity<WatchProgressBatchResultDTO> updateProgressBatch(
+            @AuthenticationPrincipal Jwt jwt,
+            @Valid @RequestBody BatchWatchProgressRequest request
+    ) {
+        UUID userId = getCurrentUserId(jwt);
+        return ResponseEntity.ok(watchProgressService.updateProgressBatch(userId, request.getSamples()));
+    }
+
+    @GetMapping(value = "/class/{classId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "Receive resume, completion and certificate events for a class while it plays",
+            description = "Positions are still reported through POST /v1/watch-progress or the batch endpoint.")
+    public SseEmitter streamProgress(
+            @PathVariable UUID classId,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        UUID userId = getCurrentUserId(jwt);
+        return playbackStreamService.open(userId, classId, jwt.getExpiresAt());
+    }
+
     @GetMapping("/class/{classId}/completed")
     @PreAuthorize("isAuthenticated()")
     @Operation(summary = "Check if current user has completed a class")
@@ -0,0 +1,17 @@
+package com.lumera.academy.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchWatchProgressRequest {
+
+    // Position samples in the order they were recorded by the player
+    @NotEmpty(message = "At least one sample is required")
+    @Size(max = 500, message = "A batch may contain at most 500 samples")
+    private List<@Valid UpdateWatchProgressRequest> samples;
+}
@@ -0,0 +1,31 @@
+package com.lumera.academy.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+public class ClassRetentionDTO {
+
+    private UUID liveClassId;
+    private String classTitle;
+    private long viewers;
+    private List<Bucket> buckets;
+
+    @Data
+    @Builder
+    public static class Bucket {
+        private int index;
+        private double startPercent;
+        private double endPercent;
+        /** Viewers whose resume position is in this bucket. */
+        private long stoppedHere;
+        /** Viewers who watched any part of this bucket. */
+        private long watched;
+        /** Watched viewers as a share of all viewers, 0-100. */
+        private double retentionPercent;
+    }
+}
@@ -0,0 +1,34 @@
+package com.lumera.academy.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+public class EarningsSeriesDTO {
+
+    private Granularity granularity;
+    /**
+     * Start of the first bucket; the requested start is moved back to its bucket boundary.
+     */
+    private LocalDate from;
+    private LocalDate to;
+    private List<Bucket> buckets;
+
+    @Data
+    @Builder
+    public static class Bucket {
+        private LocalDate start;
+        private long enrollments;
+        private BigDecimal grossAmount;
+        private BigDecimal earnings;
+    }
+
+    public enum Granularity {
+        DAY, WEEK, MONTH
+    }
+}
@@ -0,0 +1,30 @@
+package com.lumera.academy.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@Builder
+public class EarningsSummaryDTO {
+
+    private BigDecimal totalEarnings;
+    private int periodDays;
+    private BigDecimal currentPeriodEarnings;
+    private BigDecimal previousPeriodEarnings;
+    /**
+     * Change against the previous period in percent; null when the previous period earned nothing.
+     */
+    private BigDecimal changePercent;
+    /**
+     * Enrollments whose payment has not completed yet.
+     */
+    private BigDecimal awaitingPayment;
+    /**
+     * Completed earnings not paid out yet.
+     */
+    private BigDecimal pendingPayout;
+    private Instant nextPayoutAt;
+}
@@ -0,0 +1,23 @@
+package com.lumera.academy.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+public class ReportJobDTO {
+
+    private UUID id;
+    private Status status;
+    private Instant createdAt;
+    private Instant completedAt;
+    private String downloadUrl;
+    private String error;
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+}
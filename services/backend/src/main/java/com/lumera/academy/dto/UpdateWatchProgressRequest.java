@@ -1,5 +1,7 @@
 package com.lumera.academy.dto;
 
+import com.lumera.academy.entity.WatchCoverage;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -18,5 +20,16 @@ public class UpdateWatchProgressRequest {
 
     @NotNull(message = "Total duration is required")
     @Min(value = 1, message = "Duration must be at least 1 second")
+    @Max(value = WatchCoverage.MAX_RECORDING_SECONDS, message = "Duration cannot exceed 24 hours")
     private Integer totalDuration;
+
+    /**
+     * Reported position clamped to [0, totalDuration], so it cannot grow the coverage bitmap past the recording.
+     */
+    public Integer getCurrentPosition() {
+        if (currentPosition == null || totalDuration == null) {
+            return currentPosition;
+        }
+        return WatchCoverage.clampPosition(currentPosition, totalDuration);
+    }
 }
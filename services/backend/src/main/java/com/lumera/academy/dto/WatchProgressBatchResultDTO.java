@@ -0,0 +1,16 @@
+package com.lumera.academy.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+public class WatchProgressBatchResultDTO {
+
+    private int samplesAccepted;
+    private int classesUpdated;
+    private List<UUID> completedClassIds;
+}
@@ -8,7 +8,7 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class WatchProgressDTO {
 
     private UUID id;
@@ -23,6 +23,11 @@ public class WatchProgressDTO {
     private Instant completedAt;
     private Instant lastWatchedAt;
 
+    /**
+     * Server-suggested delay before the player's next heartbeat, only set on heartbeat responses.
+     */
+    private Integer nextReportAfterSeconds;
+
     public static WatchProgressDTO fromEntity(WatchProgress progress) {
         return WatchProgressDTO.builder()
                 .id(progress.getId())
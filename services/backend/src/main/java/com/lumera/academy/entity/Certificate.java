@@ -40,13 +40,9 @@ public class Certificate extends BaseEntity {
 
     private Instant revokedAt;
 
+    // The certificate number is assigned by CertificateNumberAllocator before persisting
     @PrePersist
     public void prePersist() {
-        if (certificateNumber == null) {
-            // Generate certificate number: LBA-YYYY-XXXXX
-            certificateNumber = "LBA-" + java.time.Year.now().getValue() + "-" +
-                String.format("%05d", (int) (Math.random() * 100000));
-        }
         if (issuedAt == null) {
             issuedAt = Instant.now();
         }
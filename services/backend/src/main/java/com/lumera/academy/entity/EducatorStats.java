@@ -0,0 +1,36 @@
+package com.lumera.academy.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Per-educator dashboard counters. educator_stats is a view summing the educator_stats_shards
+ * rows that database triggers on watch_progress and certificates maintain, so the application
+ * only ever reads it.
+ */
+@Entity
+@Table(name = "educator_stats")
+@Immutable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EducatorStats {
+
+    @Id
+    @Column(name = "educator_id")
+    private UUID educatorId;
+
+    @Column(nullable = false)
+    private long classCompletions;
+
+    @Column(nullable = false)
+    private long certificatesIssued;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+}
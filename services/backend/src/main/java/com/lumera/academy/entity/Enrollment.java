@@ -5,6 +5,7 @@ import lombok.*;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.UUID;
 
 @Entity
 @Table(name = "enrollments", uniqueConstraints = {
@@ -54,6 +55,10 @@ public class Enrollment extends BaseEntity {
 
     private boolean certificateIssued;
 
+    // Written only by the payout batch, so saving a stale entity never unlinks a payout
+    @Column(insertable = false, updatable = false)
+    private UUID payoutRecordId;
+
     public enum EnrollmentStatus {
         PENDING, CONFIRMED, ATTENDED, COMPLETED, CANCELLED, REFUNDED
     }
@@ -5,6 +5,7 @@ import lombok.*;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.UUID;
 
 @Entity
 @Table(name = "payout_records")
@@ -44,6 +45,13 @@ public class PayoutRecord extends BaseEntity {
     @Column(columnDefinition = "TEXT")
     private String notes;
 
+    @Column(unique = true)
+    private String idempotencyKey;
+
+    private UUID payoutRunId;
+
+    private int attempts;
+
     public enum PayoutStatus {
         PENDING, PROCESSING, COMPLETED, FAILED, CANCELLED
     }
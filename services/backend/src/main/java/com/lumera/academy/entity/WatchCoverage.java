@@ -0,0 +1,171 @@
+package com.lumera.academy.entity;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Bitset of watched 5-second segments of a recording, persisted in watch_progress.coverage.
+ *
+ * The encoding is little-endian and matches PostgreSQL's set_bit/get_bit numbering on bytea:
+ * segment n is bit (n % 8) of byte (n / 8). Trailing zero bytes are trimmed, so a fully
+ * watched 3-hour class takes 270 bytes. Merging and counting work on whole 64-bit words and
+ * only allocate when the bitmap has to grow.
+ */
+public final class WatchCoverage {
+
+    public static final int SEGMENT_SECONDS = 5;
+
+    /**
+     * Largest forward jump between two reports that is still credited as continuous playback.
+     * Anything further is treated as a seek and only moves the resume position.
+     */
+    public static final int MAX_CONTIGUOUS_GAP_SECONDS = 150;
+
+    /**
+     * Longest recording whose coverage is tracked. Positions are clamped to the recording, so this
+     * bounds the bitmap at 2160 bytes whatever a client reports.
+     */
+    public static final int MAX_RECORDING_SECONDS = 24 * 60 * 60;
+
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private long[] words;
+
+    private WatchCoverage(long[] words) {
+        this.words = words;
+    }
+
+    public static WatchCoverage empty() {
+        return new WatchCoverage(new long[0]);
+    }
+
+    public static WatchCoverage decode(byte[] encoded) {
+        WatchCoverage coverage = new WatchCoverage(new long[encoded != null ? (encoded.length + 7) >>> 3 : 0]);
+        coverage.or(encoded);
+        return coverage;
+    }
+
+    public static int segmentCount(int totalSeconds) {
+        return totalSeconds > 0 ? (totalSeconds + SEGMENT_SECONDS - 1) / SEGMENT_SECONDS : 0;
+    }
+
+    /**
+     * Position clamped to [0, totalSeconds].
+     */
+    public static int clampPosition(int position, int totalSeconds) {
+        return Math.max(0, Math.min(position, Math.min(totalSeconds, MAX_RECORDING_SECONDS)));
+    }
+
+    /**
+     * Credit the playback between two consecutive reports if it looks continuous. Both positions
+     * are clamped to the recording first.
+     *
+     * @return whether any segment was credited
+     */
+    public boolean advance(int previousPosition, int currentPosition, int totalSeconds) {
+        previousPosition = clampPosition(previousPosition, totalSeconds);
+        currentPosition = clampPosition(currentPosition, totalSeconds);
+        int delta = currentPosition - previousPosition;
+        if (delta <= 0 || delta > MAX_CONTIGUOUS_GAP_SECONDS) {
+            return false;
+        }
+        markSeconds(previousPosition, currentPosition);
+        return true;
+    }
+
+    /**
+     * Mark every segment overlapping the half-open range [fromSecond, toSecond).
+     * Seconds past {@link #MAX_RECORDING_SECONDS} are ignored.
+     */
+    public void markSeconds(int fromSecond, int toSecond) {
+        toSecond = Math.min(toSecond, MAX_RECORDING_SECONDS);
+        if (toSecond <= fromSecond || toSecond <= 0) {
+            return;
+        }
+        int first = Math.max(fromSecond, 0) / SEGMENT_SECONDS;
+        int last = (toSecond - 1) / SEGMENT_SECONDS;
+        ensureCapacity(last);
+
+        int firstWord = first >>> 6;
+        int lastWord = last >>> 6;
+        long firstMask = -1L << first;
+        long lastMask = -1L >>> (63 - (last & 63));
+        if (firstWord == lastWord) {
+            words[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        words[firstWord] |= firstMask;
+        for (int i = firstWord + 1; i < lastWord; i++) {
+            words[i] = -1L;
+        }
+        words[lastWord] |= lastMask;
+    }
+
+    /**
+     * Merge an encoded bitmap into this one.
+     */
+    public void or(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return;
+        }
+        ensureCapacity(encoded.length * 8 - 1);
+        int fullWords = encoded.length >>> 3;
+        for (int w = 0; w < fullWords; w++) {
+            words[w] |= (long) LONG_LE.get(encoded, w << 3);
+        }
+        for (int i = fullWords << 3; i < encoded.length; i++) {
+            words[i >>> 3] |= (encoded[i] & 0xFFL) << ((i & 7) << 3);
+        }
+    }
+
+    /**
+     * Number of watched segments below {@code segmentLimit}.
+     */
+    public int cardinality(int segmentLimit) {
+        int fullWords = Math.min(segmentLimit >>> 6, words.length);
+        int count = 0;
+        for (int w = 0; w < fullWords; w++) {
+            count += Long.bitCount(words[w]);
+        }
+        int remainder = segmentLimit & 63;
+        if (remainder != 0 && fullWords < words.length) {
+            count += Long.bitCount(words[fullWords] & ((1L << remainder) - 1));
+        }
+        return count;
+    }
+
+    /**
+     * Share of the recording's segments that have been watched, 0-100.
+     */
+    public double percentage(int totalSeconds) {
+        int segments = segmentCount(totalSeconds);
+        if (segments == 0) {
+            return 0.0;
+        }
+        return (double) cardinality(segments) / segments * 100;
+    }
+
+    public byte[] toBytes() {
+        int lastByte = -1;
+        for (int w = words.length - 1; w >= 0; w--) {
+            if (words[w] != 0) {
+                lastByte = (w << 3) + 7 - (Long.numberOfLeadingZeros(words[w]) >>> 3);
+                break;
+            }
+        }
+        byte[] encoded = new byte[lastByte + 1];
+        for (int i = 0; i <= lastByte; i++) {
+            encoded[i] = (byte) (words[i >>> 3] >>> ((i & 7) << 3));
+        }
+        return encoded;
+    }
+
+    private void ensureCapacity(int segment) {
+        int needed = (segment >>> 6) + 1;
+        if (needed > words.length) {
+            words = Arrays.copyOf(words, needed);
+        }
+    }
+}
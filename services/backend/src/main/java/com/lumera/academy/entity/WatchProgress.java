@@ -16,6 +16,11 @@ import java.time.Instant;
 @Builder
 public class WatchProgress extends BaseEntity {
 
+    /**
+     * Percentage of the recording that must be watched for the class to count as completed.
+     */
+    public static final double COMPLETION_THRESHOLD = 90.0;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -36,6 +41,11 @@ public class WatchProgress extends BaseEntity {
     @Builder.Default
     private Double watchPercentage = 0.0;
 
+    // Watched 5-second segments, see WatchCoverage for the encoding
+    @Column(nullable = false)
+    @Builder.Default
+    private byte[] coverage = new byte[0];
+
     // Last playback position in seconds (for resume functionality)
     @Column(nullable = false)
     @Builder.Default
@@ -50,10 +60,18 @@ public class WatchProgress extends BaseEntity {
     private Instant lastWatchedAt;
 
     /**
-     * Updates watch progress and calculates percentage.
+     * Updates watch progress and calculates percentage from segment coverage.
      * Triggers completion if threshold is reached.
      */
     public void updateProgress(int currentPosition, int totalDuration) {
+        currentPosition = WatchCoverage.clampPosition(currentPosition, totalDuration);
+
+        // Credit the playback since the previous report; seeks only move the resume position
+        WatchCoverage watched = WatchCoverage.decode(this.coverage);
+        if (watched.advance(this.lastPosition, currentPosition, totalDuration)) {
+            this.coverage = watched.toBytes();
+        }
+
         this.lastPosition = currentPosition;
         this.totalDurationSeconds = totalDuration;
         this.lastWatchedAt = Instant.now();
@@ -63,13 +81,13 @@ public class WatchProgress extends BaseEntity {
             this.watchedSeconds = currentPosition;
         }
 
-        // Calculate percentage
+        // Calculate percentage from the segments actually watched
         if (totalDuration > 0) {
-            this.watchPercentage = (double) this.watchedSeconds / totalDuration * 100;
+            this.watchPercentage = watched.percentage(totalDuration);
         }
 
         // Mark as completed if 90% or more watched
-        if (this.watchPercentage >= 90.0 && !this.completed) {
+        if (this.watchPercentage >= COMPLETION_THRESHOLD && !this.completed) {
             this.completed = true;
             this.completedAt = Instant.now();
         }
@@ -0,0 +1,9 @@
+package com.lumera.academy.event;
+
+import com.lumera.academy.dto.CertificateDTO;
+
+/**
+ * Published by the issuance worker once a certificate exists for a completed class.
+ */
+public record CertificateIssuedEvent(CertificateDTO certificate) {
+}
@@ -0,0 +1,9 @@
+package com.lumera.academy.event;
+
+import java.util.UUID;
+
+/**
+ * Published when a certificate is revoked; listeners act once the revocation has committed.
+ */
+public record CertificateRevokedEvent(UUID certificateId, String certificateNumber) {
+}
@@ -0,0 +1,9 @@
+package com.lumera.academy.event;
+
+import java.util.UUID;
+
+/**
+ * Published once a student's watch progress on a class crosses the completion threshold.
+ */
+public record ClassCompletedEvent(UUID userId, UUID liveClassId) {
+}
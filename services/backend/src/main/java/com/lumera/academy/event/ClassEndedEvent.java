@@ -0,0 +1,9 @@
+package com.lumera.academy.event;
+
+import java.util.UUID;
+
+/**
+ * Published when an educator ends a live class.
+ */
+public record ClassEndedEvent(UUID liveClassId) {
+}
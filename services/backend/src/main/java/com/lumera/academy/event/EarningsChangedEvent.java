@@ -0,0 +1,9 @@
+package com.lumera.academy.event;
+
+import java.util.UUID;
+
+/**
+ * Published when an educator's earnings or payouts change; listeners act once the change has committed.
+ */
+public record EarningsChangedEvent(UUID educatorId) {
+}
@@ -0,0 +1,278 @@
+package com.lumera.academy.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * JDBC access for issuing the certificates of a whole class at once.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CertificateBatchRepository {
+
+    // Attendees: paid enrollments that attended the live class or watched the recording to completion
+    private static final String ATTENDED_SQL = """
+            e.payment_status = 'COMPLETED'
+              AND (e.status IN ('ATTENDED', 'COMPLETED')
+                   OR EXISTS (SELECT 1 FROM watch_progress wp
+                              WHERE wp.user_id = e.student_id AND wp.live_class_id = e.live_class_id
+                                AND wp.completed = TRUE))
+            """;
+
+    // Attendees of the class that have no certificate yet
+    private static final String FIND_ELIGIBLE_SQL = """
+            SELECT e.student_id,
+                   s.first_name || ' ' || s.last_name AS student_name,
+                   lc.title,
+                   ed.first_name || ' ' || ed.last_name AS educator_name
+            FROM enrollments e
+            JOIN users s ON s.id = e.student_id
+            JOIN live_classes lc ON lc.id = e.live_class_id
+            JOIN users ed ON ed.id = lc.educator_id
+            WHERE e.live_class_id = ?
+              AND NOT EXISTS (SELECT 1 FROM certificates c
+                              WHERE c.user_id = e.student_id AND c.live_class_id = e.live_class_id)
+              AND """ + ATTENDED_SQL;
+
+    // Classes ended since bulk issuance shipped whose issuance was dropped or failed: attendees
+    // still without a certificate
+    private static final String FIND_CLASSES_MISSING_CERTIFICATES_SQL = """
+            SELECT DISTINCT e.live_class_id
+            FROM live_classes lc
+            JOIN enrollments e ON e.live_class_id = lc.id
+            WHERE lc.status = 'COMPLETED'
+              AND lc.ended_at >= (SELECT ended_after FROM certificate_sweep_cutoff)
+              AND e.certificate_issued IS DISTINCT FROM TRUE
+              AND NOT EXISTS (SELECT 1 FROM certificates c
+                              WHERE c.user_id = e.student_id AND c.live_class_id = e.live_class_id)
+              AND """ + ATTENDED_SQL + """
+            LIMIT ?
+            """;
+
+    // Rows that lose a race on (user, class) are skipped, the other writer's certificate stands
+    private static final String INSERT_CERTIFICATE_SQL = """
+            INSERT INTO certificates (id, certificate_number, user_id, live_class_id, issued_at)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (user_id, live_class_id) DO NOTHING
+            """;
+
+    private static final String NUMBER_BLOCK_SIZE_SQL = """
+            SELECT increment_by FROM pg_sequences
+            WHERE schemaname = current_schema() AND sequencename = 'certificate_number_seq'
+            """;
+
+    private static final String LAST_NUMBER_BLOCK_SQL = "SELECT last_value FROM certificate_number_seq";
+
+    private static final String RESERVE_NUMBER_BLOCKS_SQL = """
+            SELECT nextval('certificate_number_seq') FROM generate_series(1, ?)
+            """;
+
+    private static final String MARK_ISSUED_SQL = """
+            UPDATE enrollments e SET certificate_issued = TRUE
+            WHERE e.live_class_id = ?
+              AND e.certificate_issued IS DISTINCT FROM TRUE
+              AND EXISTS (SELECT 1 FROM certificates c
+                          WHERE c.user_id = e.student_id AND c.live_class_id = e.live_class_id)
+            """;
+
+    private static final String UPDATE_PDF_URLS_SQL = """
+            UPDATE certificates SET pdf_url = '/v1/certificates/verify/' || certificate_number || '/pdf'
+            WHERE id = ANY (?)
+            """;
+
+    private static final String COUNT_NUMBERS_SQL = "SELECT COUNT(*) FROM certificates";
+
+    private static final String ALL_NUMBERS_SQL = "SELECT certificate_number FROM certificates";
+
+    private static final String NUMBERS_CREATED_SINCE_SQL = """
+            SELECT certificate_number FROM certificates WHERE created_at >= ?
+            """;
+
+    private static final String EXPORT_PAGE_SQL = """
+            SELECT c.id, c.certificate_number, c.issued_at, c.pdf_url,
+                   s.first_name || ' ' || s.last_name AS student_name,
+                   lc.title,
+                   ed.first_name || ' ' || ed.last_name AS educator_name
+            FROM certificates c
+            JOIN users s ON s.id = c.user_id
+            JOIN live_classes lc ON lc.id = c.live_class_id
+            JOIN users ed ON ed.id = lc.educator_id
+            WHERE c.live_class_id = ? AND c.revoked = FALSE AND c.id > ?
+            ORDER BY c.id
+            LIMIT ?
+            """;
+
+    private static final int NUMBER_FETCH_SIZE = 10000;
+
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Classes ended since the certificate_sweep_cutoff that still have attendees without a
+     * certificate. Older classes are only issued for by moving the cutoff back.
+     */
+    public List<UUID> findClassesMissingCertificates(int limit) {
+        return jdbcTemplate.queryForList(FIND_CLASSES_MISSING_CERTIFICATES_SQL, UUID.class, limit);
+    }
+
+    public List<EligibleEnrollment> findEligible(UUID liveClassId) {
+        return jdbcTemplate.query(FIND_ELIGIBLE_SQL, (rs, rowNum) -> new EligibleEnrollment(
+                rs.getObject("student_id", UUID.class),
+                rs.getString("student_name"),
+                rs.getString("title"),
+                rs.getString("educator_name")
+        ), liveClassId);
+    }
+
+    /**
+     * Insert the certificates in one JDBC batch.
+     *
+     * @return the certificates that were actually inserted
+     */
+    public List<CertificateInsert> insertAll(List<CertificateInsert> certificates) {
+        if (certificates.isEmpty()) {
+            return List.of();
+        }
+        List<Object[]> args = new ArrayList<>(certificates.size());
+        for (CertificateInsert certificate : certificates) {
+            args.add(new Object[]{
+                    certificate.id(),
+                    certificate.certificateNumber(),
+                    certificate.userId(),
+                    certificate.liveClassId(),
+                    Timestamp.from(certificate.issuedAt())
+            });
+        }
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_CERTIFICATE_SQL, args);
+
+        List<CertificateInsert> inserted = new ArrayList<>(certificates.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                inserted.add(certificates.get(i));
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Flag every enrollment of the class that now has a certificate.
+     */
+    public int markIssued(UUID liveClassId) {
+        return jdbcTemplate.update(MARK_ISSUED_SQL, liveClassId);
+    }
+
+    public void updatePdfUrls(Collection<UUID> certificateIds) {
+        if (certificateIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(connection -> {
+            Array ids = connection.createArrayOf("uuid", certificateIds.toArray());
+            PreparedStatement statement = connection.prepareStatement(UPDATE_PDF_URLS_SQL);
+            statement.setArray(1, ids);
+            return statement;
+        });
+    }
+
+    /**
+     * Number of values reserved by one nextval() on certificate_number_seq.
+     */
+    public int numberBlockSize() {
+        Integer size = jdbcTemplate.queryForObject(NUMBER_BLOCK_SIZE_SQL, Integer.class);
+        if (size == null || size <= 0) {
+            throw new IllegalStateException("certificate_number_seq must have a positive increment");
+        }
+        return size;
+    }
+
+    /**
+     * Reserve blocks of certificate numbers.
+     *
+     * @return the first value of each block; a block spans numberBlockSize() values
+     */
+    public List<Long> reserveNumberBlocks(int blocks) {
+        return jdbcTemplate.queryForList(RESERVE_NUMBER_BLOCKS_SQL, Long.class, blocks);
+    }
+
+    /**
+     * First value of the most recently reserved block. Every value from here on is either in
+     * that block or not reserved yet.
+     */
+    public long lastNumberBlock() {
+        Long value = jdbcTemplate.queryForObject(LAST_NUMBER_BLOCK_SQL, Long.class);
+        return value != null ? value : 0;
+    }
+
+    public long countNumbers() {
+        Long count = jdbcTemplate.queryForObject(COUNT_NUMBERS_SQL, Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Stream every certificate number. Must run inside a transaction for the driver to fetch
+     * the rows in chunks instead of all at once.
+     */
+    public void forEachNumber(Consumer<String> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ALL_NUMBERS_SQL);
+            statement.setFetchSize(NUMBER_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getString(1)));
+    }
+
+    public List<String> findNumbersCreatedSince(Instant since) {
+        return jdbcTemplate.queryForList(NUMBERS_CREATED_SINCE_SQL, String.class, Timestamp.from(since));
+    }
+
+    /**
+     * One keyset page of a class's valid certificates with everything needed to render them.
+     *
+     * @param afterId id of the last row of the previous page, or null for the first page
+     */
+    public List<ExportRow> findExportPage(UUID liveClassId, UUID afterId, int limit) {
+        return jdbcTemplate.query(EXPORT_PAGE_SQL, (rs, rowNum) -> new ExportRow(
+                rs.getObject("id", UUID.class),
+                rs.getString("certificate_number"),
+                rs.getString("student_name"),
+                rs.getString("title"),
+                rs.getString("educator_name"),
+                rs.getTimestamp("issued_at").toInstant(),
+                rs.getString("pdf_url")
+        ), liveClassId, afterId != null ? afterId : FIRST_ID, limit);
+    }
+
+    public record EligibleEnrollment(UUID userId, String studentName, String className, String educatorName) {
+    }
+
+    public record ExportRow(
+            UUID id,
+            String certificateNumber,
+            String studentName,
+            String className,
+            String educatorName,
+            Instant issuedAt,
+            String pdfUrl
+    ) {
+    }
+
+    public record CertificateInsert(
+            UUID id,
+            String certificateNumber,
+            UUID userId,
+            UUID liveClassId,
+            Instant issuedAt
+    ) {
+    }
+}
@@ -3,12 +3,14 @@ package com.lumera.academy.repository;
 import com.lumera.academy.entity.Certificate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -19,6 +21,8 @@ public interface CertificateRepository extends JpaRepository<Certificate, UUID>
 
     Page<Certificate> findByUserId(UUID userId, Pageable pageable);
 
+    // Listings map every row to a DTO that needs the student, class and educator
+    @EntityGraph(attributePaths = {"user", "liveClass", "liveClass.educator"})
     Page<Certificate> findByUserIdAndRevokedFalse(UUID userId, Pageable pageable);
 
     boolean existsByUserIdAndLiveClassId(UUID userId, UUID liveClassId);
@@ -29,13 +33,22 @@ public interface CertificateRepository extends JpaRepository<Certificate, UUID>
 
     long countByUserIdAndRevokedFalse(UUID userId);
 
-    // Educator queries - count certificates issued for educator's classes
-    @Query("SELECT COUNT(c) FROM Certificate c WHERE c.liveClass.educator.id = :educatorId AND c.revoked = false")
-    long countByEducatorId(@Param("educatorId") UUID educatorId);
-
-    @Query("SELECT c FROM Certificate c WHERE c.liveClass.educator.id = :educatorId AND c.revoked = false ORDER BY c.issuedAt DESC")
+    @EntityGraph(attributePaths = {"user", "liveClass", "liveClass.educator"})
+    @Query(value = "SELECT c FROM Certificate c WHERE c.liveClass.educator.id = :educatorId AND c.revoked = false ORDER BY c.issuedAt DESC",
+            countQuery = "SELECT COUNT(c) FROM Certificate c WHERE c.liveClass.educator.id = :educatorId AND c.revoked = false")
     Page<Certificate> findByEducatorId(@Param("educatorId") UUID educatorId, Pageable pageable);
 
-    @Query("SELECT c FROM Certificate c WHERE c.liveClass.educator.id = :educatorId AND c.revoked = false ORDER BY c.issuedAt DESC")
-    List<Certificate> findAllByEducatorId(@Param("educatorId") UUID educatorId);
+    @Query("SELECT c FROM Certificate c JOIN FETCH c.user JOIN FETCH c.liveClass lc JOIN FETCH lc.educator WHERE c.id = :id")
+    Optional<Certificate> findWithDetailsById(@Param("id") UUID id);
+
+    @Query("SELECT c FROM Certificate c JOIN FETCH c.user JOIN FETCH c.liveClass lc JOIN FETCH lc.educator WHERE c.certificateNumber = :certificateNumber")
+    Optional<Certificate> findWithDetailsByCertificateNumber(@Param("certificateNumber") String certificateNumber);
+
+    @Query("SELECT COUNT(c) > 0 FROM Certificate c WHERE c.id = :id AND (c.user.id = :userId OR c.liveClass.educator.id = :userId)")
+    boolean isAccessibleBy(@Param("id") UUID id, @Param("userId") UUID userId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Certificate c SET c.pdfUrl = :pdfUrl WHERE c.id = :id")
+    int updatePdfUrl(@Param("id") UUID id, @Param("pdfUrl") String pdfUrl);
 }
@@ -0,0 +1,75 @@
+package com.lumera.academy.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Per-class retention histogram. The trigger on watch_progress appends to class_retention_deltas;
+ * {@link #compactDeltas(int)} folds them into class_retention and reads add up both.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClassRetentionRepository {
+
+    /**
+     * Fixed number of buckets the recording is split into; must match the class_retention_* SQL functions.
+     */
+    public static final int BUCKETS = 20;
+
+    private static final String FIND_BUCKETS_SQL = """
+            SELECT bucket, SUM(stopped_count) AS stopped_count, SUM(watched_count) AS watched_count
+            FROM (SELECT bucket, stopped_count, watched_count FROM class_retention WHERE live_class_id = ?
+                  UNION ALL
+                  SELECT bucket, stopped_delta, watched_delta FROM class_retention_deltas WHERE live_class_id = ?) r
+            GROUP BY bucket
+            ORDER BY bucket
+            """;
+
+    // Rows are applied in key order so two compactors cannot deadlock on class_retention
+    private static final String COMPACT_DELTAS_SQL = """
+            WITH moved AS (
+                DELETE FROM class_retention_deltas
+                WHERE id IN (SELECT id FROM class_retention_deltas ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED)
+                RETURNING live_class_id, bucket, stopped_delta, watched_delta
+            ), summed AS (
+                SELECT live_class_id, bucket, SUM(stopped_delta) AS stopped, SUM(watched_delta) AS watched
+                FROM moved
+                GROUP BY live_class_id, bucket
+            ), applied AS (
+                INSERT INTO class_retention AS r (live_class_id, bucket, stopped_count, watched_count)
+                SELECT live_class_id, bucket, stopped, watched FROM summed
+                ORDER BY live_class_id, bucket
+                ON CONFLICT (live_class_id, bucket) DO UPDATE SET
+                    stopped_count = r.stopped_count + EXCLUDED.stopped_count,
+                    watched_count = r.watched_count + EXCLUDED.watched_count
+            )
+            SELECT COUNT(*) FROM moved
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<RetentionBucket> findBuckets(UUID liveClassId) {
+        return jdbcTemplate.query(FIND_BUCKETS_SQL, (rs, rowNum) -> new RetentionBucket(
+                rs.getInt("bucket"),
+                rs.getLong("stopped_count"),
+                rs.getLong("watched_count")
+        ), liveClassId, liveClassId);
+    }
+
+    /**
+     * Fold up to {@code limit} pending deltas into class_retention.
+     *
+     * @return the number of deltas folded
+     */
+    public int compactDeltas(int limit) {
+        Integer moved = jdbcTemplate.queryForObject(COMPACT_DELTAS_SQL, Integer.class, limit);
+        return moved != null ? moved : 0;
+    }
+
+    public record RetentionBucket(int bucket, long stoppedCount, long watchedCount) {
+    }
+}
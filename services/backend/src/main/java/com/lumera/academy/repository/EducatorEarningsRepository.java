@@ -0,0 +1,285 @@
+package com.lumera.academy.repository;
+
+import com.lumera.academy.entity.Enrollment;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * JDBC access to educator_earnings_daily, the per-day earnings rollup kept up to date by a
+ * trigger on enrollments.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EducatorEarningsRepository {
+
+    // Open bounds are passed as NULL so one statement serves every range
+    private static final String SUM_EARNINGS_SQL = """
+            SELECT COALESCE(SUM(educator_earning), 0)
+            FROM educator_earnings_daily
+            WHERE educator_id = ? AND payment_status = ?
+              AND (CAST(? AS DATE) IS NULL OR day >= ?)
+              AND (CAST(? AS DATE) IS NULL OR day < ?)
+            """;
+
+    // Payouts count as a change too, as they move money from pending to paid out
+    private static final String LAST_CHANGE_SQL = """
+            SELECT GREATEST(
+                (SELECT MAX(updated_at) FROM educator_earnings_daily WHERE educator_id = ?),
+                (SELECT MAX(updated_at) FROM payout_records WHERE educator_id = ?))
+            """;
+
+    private static final String SUMMARY_SQL = """
+            SELECT COALESCE(SUM(educator_earning) FILTER (WHERE payment_status = 'COMPLETED'), 0) AS total,
+                   COALESCE(SUM(educator_earning) FILTER (WHERE payment_status = 'COMPLETED'
+                       AND day >= ?), 0) AS current_period,
+                   COALESCE(SUM(educator_earning) FILTER (WHERE payment_status = 'COMPLETED'
+                       AND day >= ? AND day < ?), 0) AS previous_period,
+                   COALESCE(SUM(educator_earning) FILTER (WHERE payment_status = 'PENDING'), 0) AS awaiting_payment,
+                   (SELECT COALESCE(SUM(amount), 0) FROM payout_records
+                    WHERE educator_id = ? AND status = 'COMPLETED') AS paid_out
+            FROM educator_earnings_daily
+            WHERE educator_id = ?
+            """;
+
+    // Every bucket in [from, to] is returned, empty ones as zeros; from must be a bucket start
+    private static final String SERIES_SQL = """
+            WITH sums AS (
+                SELECT date_trunc(?, day::timestamp)::date AS bucket,
+                       SUM(enrollments) AS enrollments,
+                       SUM(amount_paid) AS amount_paid,
+                       SUM(educator_earning) AS educator_earning
+                FROM educator_earnings_daily
+                WHERE educator_id = ? AND payment_status = 'COMPLETED'
+                  AND day >= ? AND day <= ?
+                GROUP BY 1
+            )
+            SELECT b.bucket::date AS bucket,
+                   COALESCE(s.enrollments, 0) AS enrollments,
+                   COALESCE(s.amount_paid, 0) AS amount_paid,
+                   COALESCE(s.educator_earning, 0) AS educator_earning
+            FROM generate_series(CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP), CAST(? AS INTERVAL)) AS b(bucket)
+            LEFT JOIN sums s ON s.bucket = b.bucket::date
+            ORDER BY b.bucket
+            """;
+
+    private static final String LEDGER_SELECT = """
+            SELECT e.id, e.created_at, lc.title,
+                   s.first_name || ' ' || s.last_name AS student_name,
+                   e.amount_paid, e.platform_fee, e.educator_earning, e.payment_status
+            FROM enrollments e
+            JOIN live_classes lc ON lc.id = e.live_class_id
+            JOIN users s ON s.id = e.student_id
+            WHERE e.educator_id = ?
+            """;
+
+    private static final String LEDGER_FIRST_PAGE_SQL = LEDGER_SELECT + """
+            ORDER BY e.created_at DESC, e.id DESC
+            LIMIT ?
+            """;
+
+    private static final String LEDGER_NEXT_PAGE_SQL = LEDGER_SELECT + """
+              AND (e.created_at, e.id) < (?, ?)
+            ORDER BY e.created_at DESC, e.id DESC
+            LIMIT ?
+            """;
+
+    private static final String FIND_DRIFT_SQL = """
+            WITH actual AS (
+                SELECT lc.educator_id,
+                       (e.created_at AT TIME ZONE 'UTC')::date AS day,
+                       e.payment_status,
+                       COUNT(*) AS enrollments,
+                       COALESCE(SUM(e.amount_paid), 0) AS amount_paid,
+                       COALESCE(SUM(e.platform_fee), 0) AS platform_fee,
+                       COALESCE(SUM(e.educator_earning), 0) AS educator_earning
+                FROM enrollments e
+                JOIN live_classes lc ON lc.id = e.live_class_id
+                GROUP BY 1, 2, 3
+            )
+            SELECT COALESCE(a.educator_id, d.educator_id) AS educator_id,
+                   COALESCE(a.day, d.day) AS day,
+                   COALESCE(a.payment_status, d.payment_status) AS payment_status,
+                   COALESCE(a.enrollments, 0) - COALESCE(d.enrollments, 0) AS enrollments,
+                   COALESCE(a.amount_paid, 0) - COALESCE(d.amount_paid, 0) AS amount_paid,
+                   COALESCE(a.platform_fee, 0) - COALESCE(d.platform_fee, 0) AS platform_fee,
+                   COALESCE(a.educator_earning, 0) - COALESCE(d.educator_earning, 0) AS educator_earning
+            FROM actual a
+            FULL OUTER JOIN educator_earnings_daily d
+                ON d.educator_id = a.educator_id AND d.day = a.day AND d.payment_status = a.payment_status
+            WHERE COALESCE(a.enrollments, 0) <> COALESCE(d.enrollments, 0)
+               OR COALESCE(a.amount_paid, 0) <> COALESCE(d.amount_paid, 0)
+               OR COALESCE(a.platform_fee, 0) <> COALESCE(d.platform_fee, 0)
+               OR COALESCE(a.educator_earning, 0) <> COALESCE(d.educator_earning, 0)
+            """;
+
+    // Relative, so rows the trigger changed after the drift was measured are kept
+    private static final String ADD_CORRECTION_SQL = """
+            INSERT INTO educator_earnings_daily AS d (educator_id, day, payment_status, enrollments,
+                                                      amount_paid, platform_fee, educator_earning)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (educator_id, day, payment_status) DO UPDATE SET
+                enrollments = d.enrollments + EXCLUDED.enrollments,
+                amount_paid = d.amount_paid + EXCLUDED.amount_paid,
+                platform_fee = d.platform_fee + EXCLUDED.platform_fee,
+                educator_earning = d.educator_earning + EXCLUDED.educator_earning,
+                updated_at = NOW()
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Educator earnings in a payment status over the days [from, to); either bound may be null.
+     */
+    public BigDecimal sumEarnings(UUID educatorId, Enrollment.PaymentStatus status, LocalDate from, LocalDate to) {
+        Date fromDate = from != null ? Date.valueOf(from) : null;
+        Date toDate = to != null ? Date.valueOf(to) : null;
+        return jdbcTemplate.queryForObject(SUM_EARNINGS_SQL, BigDecimal.class,
+                educatorId, status.name(), fromDate, fromDate, toDate, toDate);
+    }
+
+    /**
+     * When the educator's earnings or payouts last changed; the trigger touches updated_at on
+     * every enrollment change. Empty when the educator has neither yet.
+     */
+    public Optional<Instant> findLastChange(UUID educatorId) {
+        Timestamp lastChange = jdbcTemplate.queryForObject(LAST_CHANGE_SQL, Timestamp.class, educatorId, educatorId);
+        return Optional.ofNullable(lastChange).map(Timestamp::toInstant);
+    }
+
+    /**
+     * All-time, current period and previous period earnings plus completed payouts, in one pass
+     * over the rollup. The current period is [currentFrom, today], the previous one
+     * [previousFrom, currentFrom).
+     */
+    public EarningsTotals summarize(UUID educatorId, LocalDate currentFrom, LocalDate previousFrom) {
+        Date current = Date.valueOf(currentFrom);
+        Date previous = Date.valueOf(previousFrom);
+        return jdbcTemplate.queryForObject(SUMMARY_SQL, (rs, rowNum) -> new EarningsTotals(
+                rs.getBigDecimal("total"),
+                rs.getBigDecimal("current_period"),
+                rs.getBigDecimal("previous_period"),
+                rs.getBigDecimal("awaiting_payment"),
+                rs.getBigDecimal("paid_out")
+        ), current, previous, current, educatorId, educatorId);
+    }
+
+    /**
+     * Completed earnings of an educator per bucket over the days [from, to], gap-filled.
+     *
+     * @param unit a date_trunc unit: day, week or month
+     */
+    public List<SeriesPoint> findSeries(UUID educatorId, String unit, LocalDate from, LocalDate to) {
+        Date fromDate = Date.valueOf(from);
+        Date toDate = Date.valueOf(to);
+        return jdbcTemplate.query(SERIES_SQL, (rs, rowNum) -> new SeriesPoint(
+                rs.getDate("bucket").toLocalDate(),
+                rs.getLong("enrollments"),
+                rs.getBigDecimal("amount_paid"),
+                rs.getBigDecimal("educator_earning")
+        ), unit, educatorId, fromDate, toDate, fromDate, toDate, "1 " + unit);
+    }
+
+    /**
+     * One keyset page of an educator's enrollments, newest first.
+     *
+     * @param after last row of the previous page, or null for the first page
+     */
+    public List<LedgerRow> findLedgerPage(UUID educatorId, LedgerRow after, int limit) {
+        RowMapper<LedgerRow> mapper = (rs, rowNum) -> new LedgerRow(
+                rs.getObject("id", UUID.class),
+                rs.getTimestamp("created_at").toInstant(),
+                rs.getString("title"),
+                rs.getString("student_name"),
+                rs.getBigDecimal("amount_paid"),
+                rs.getBigDecimal("platform_fee"),
+                rs.getBigDecimal("educator_earning"),
+                Enrollment.PaymentStatus.valueOf(rs.getString("payment_status"))
+        );
+        if (after == null) {
+            return jdbcTemplate.query(LEDGER_FIRST_PAGE_SQL, mapper, educatorId, limit);
+        }
+        return jdbcTemplate.query(LEDGER_NEXT_PAGE_SQL, mapper,
+                educatorId, Timestamp.from(after.createdAt()), after.id(), limit);
+    }
+
+    /**
+     * Rollup rows that differ from a recount of enrollments, as the correction to apply.
+     */
+    public List<DailyDrift> findDrift() {
+        return jdbcTemplate.query(FIND_DRIFT_SQL, (rs, rowNum) -> new DailyDrift(
+                rs.getObject("educator_id", UUID.class),
+                rs.getDate("day").toLocalDate(),
+                rs.getString("payment_status"),
+                rs.getLong("enrollments"),
+                rs.getBigDecimal("amount_paid"),
+                rs.getBigDecimal("platform_fee"),
+                rs.getBigDecimal("educator_earning")
+        ));
+    }
+
+    public void addCorrections(List<DailyDrift> corrections) {
+        if (corrections.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(corrections.size());
+        for (DailyDrift drift : corrections) {
+            args.add(new Object[]{
+                    drift.educatorId(),
+                    Date.valueOf(drift.day()),
+                    drift.paymentStatus(),
+                    drift.enrollments(),
+                    drift.amountPaid(),
+                    drift.platformFee(),
+                    drift.educatorEarning()
+            });
+        }
+        jdbcTemplate.batchUpdate(ADD_CORRECTION_SQL, args);
+    }
+
+    public record LedgerRow(
+            UUID id,
+            Instant createdAt,
+            String classTitle,
+            String studentName,
+            BigDecimal amountPaid,
+            BigDecimal platformFee,
+            BigDecimal educatorEarning,
+            Enrollment.PaymentStatus paymentStatus
+    ) {
+    }
+
+    public record SeriesPoint(LocalDate bucket, long enrollments, BigDecimal amountPaid, BigDecimal educatorEarning) {
+    }
+
+    public record EarningsTotals(
+            BigDecimal total,
+            BigDecimal currentPeriod,
+            BigDecimal previousPeriod,
+            BigDecimal awaitingPayment,
+            BigDecimal paidOut
+    ) {
+    }
+
+    public record DailyDrift(
+            UUID educatorId,
+            LocalDate day,
+            String paymentStatus,
+            long enrollments,
+            BigDecimal amountPaid,
+            BigDecimal platformFee,
+            BigDecimal educatorEarning
+    ) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.lumera.academy.repository;
+
+import com.lumera.academy.entity.EducatorStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface EducatorStatsRepository extends JpaRepository<EducatorStats, UUID> {
+
+    /**
+     * Educators whose stored counters differ from a full recount of the source tables.
+     */
+    @Query(value = """
+            WITH actual AS (
+                SELECT lc.educator_id,
+                       SUM(counts.completions) AS completions,
+                       SUM(counts.certificates) AS certificates
+                FROM live_classes lc
+                JOIN (
+                    SELECT live_class_id, COUNT(*) AS completions, 0 AS certificates
+                    FROM watch_progress WHERE completed = TRUE GROUP BY live_class_id
+                    UNION ALL
+                    SELECT live_class_id, 0, COUNT(*)
+                    FROM certificates WHERE revoked = FALSE GROUP BY live_class_id
+                ) counts ON counts.live_class_id = lc.id
+                GROUP BY lc.educator_id
+            )
+            SELECT COALESCE(a.educator_id, s.educator_id) AS "educatorId",
+                   COALESCE(s.class_completions, 0) AS "storedCompletions",
+                   COALESCE(a.completions, 0) AS "actualCompletions",
+                   COALESCE(s.certificates_issued, 0) AS "storedCertificates",
+                   COALESCE(a.certificates, 0) AS "actualCertificates"
+            FROM actual a
+            FULL OUTER JOIN educator_stats s ON s.educator_id = a.educator_id
+            WHERE COALESCE(s.class_completions, 0) <> COALESCE(a.completions, 0)
+               OR COALESCE(s.certificates_issued, 0) <> COALESCE(a.certificates, 0)
+            """, nativeQuery = true)
+    List<StatsDrift> findDrift();
+
+    /**
+     * Apply a relative correction, so increments committed after the drift was measured are kept.
+     * Corrections go to shard 0; only the sum over an educator's shards is meaningful.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO educator_stats_shards AS s (educator_id, shard, class_completions, certificates_issued)
+            VALUES (:educatorId, 0, :completions, :certificates)
+            ON CONFLICT (educator_id, shard) DO UPDATE SET
+                class_completions = s.class_completions + EXCLUDED.class_completions,
+                certificates_issued = s.certificates_issued + EXCLUDED.certificates_issued,
+                updated_at = NOW()
+            """, nativeQuery = true)
+    int addCounts(@Param("educatorId") UUID educatorId,
+                  @Param("completions") long completions,
+                  @Param("certificates") long certificates);
+
+    interface StatsDrift {
+        UUID getEducatorId();
+
+        long getStoredCompletions();
+
+        long getActualCompletions();
+
+        long getStoredCertificates();
+
+        long getActualCertificates();
+    }
+}
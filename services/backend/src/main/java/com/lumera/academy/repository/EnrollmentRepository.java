@@ -8,7 +8,6 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
@@ -33,12 +32,6 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, UUID> {
     @Query("SELECT COUNT(e) FROM Enrollment e WHERE e.liveClass.id = :liveClassId AND e.status NOT IN ('CANCELLED', 'REFUNDED')")
     int countActiveEnrollments(@Param("liveClassId") UUID liveClassId);
 
-    @Query("SELECT SUM(e.educatorEarning) FROM Enrollment e WHERE e.liveClass.educator.id = :educatorId AND e.paymentStatus = 'COMPLETED'")
-    BigDecimal calculateTotalEarnings(@Param("educatorId") UUID educatorId);
-
-    @Query("SELECT SUM(e.educatorEarning) FROM Enrollment e WHERE e.liveClass.educator.id = :educatorId AND e.paymentStatus = 'COMPLETED' AND e.createdAt >= :since")
-    BigDecimal calculateEarningsSince(@Param("educatorId") UUID educatorId, @Param("since") Instant since);
-
     @Query("SELECT DISTINCT e.student FROM Enrollment e WHERE e.liveClass.educator.id = :educatorId")
     Page<com.lumera.academy.entity.User> findStudentsByEducator(@Param("educatorId") UUID educatorId, Pageable pageable);
 
@@ -0,0 +1,295 @@
+package com.lumera.academy.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC access for the payout batch: payout runs, their checkpoints and the payout records they create.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PayoutRepository {
+
+    private static final String START_RUN_SQL = """
+            INSERT INTO payout_runs (run_date, cutoff) VALUES (?, ?)
+            ON CONFLICT (run_date) DO NOTHING
+            """;
+
+    private static final String RUN_SELECT = """
+            SELECT id, run_date, status, cutoff, last_educator_id FROM payout_runs
+            """;
+
+    private static final String FIND_RUN_SQL = RUN_SELECT + "WHERE run_date = ?";
+
+    private static final String FIND_UNFINISHED_RUNS_SQL = RUN_SELECT + "WHERE status = 'RUNNING' ORDER BY run_date";
+
+    // Taken over once the previous holder's lease has run out, e.g. after a crash
+    private static final String CLAIM_RUN_SQL = """
+            UPDATE payout_runs SET locked_by = ?, locked_until = NOW() + make_interval(secs => ?)
+            WHERE id = ? AND status = 'RUNNING'
+              AND (locked_by = ? OR locked_until IS NULL OR locked_until < NOW())
+            """;
+
+    private static final String ADVANCE_RUN_SQL = """
+            UPDATE payout_runs SET last_educator_id = ?,
+                                   educators_paid = educators_paid + ?,
+                                   amount_total = amount_total + ?,
+                                   locked_until = NOW() + make_interval(secs => ?)
+            WHERE id = ? AND locked_by = ?
+            """;
+
+    private static final String FINISH_RUN_SQL = """
+            UPDATE payout_runs SET status = 'COMPLETED', finished_at = NOW(), locked_by = NULL, locked_until = NULL
+            WHERE id = ? AND locked_by = ?
+              AND NOT EXISTS (SELECT 1 FROM payout_records
+                              WHERE payout_run_id = ? AND status IN ('PENDING', 'PROCESSING'))
+            """;
+
+    private static final String FIRST_EDUCATORS_SQL = """
+            SELECT id FROM users WHERE role = 'EDUCATOR' ORDER BY id LIMIT ?
+            """;
+
+    private static final String NEXT_EDUCATORS_SQL = """
+            SELECT id FROM users WHERE role = 'EDUCATOR' AND id > ? ORDER BY id LIMIT ?
+            """;
+
+    // Locks the unpaid enrollments, sums them per educator, creates one payout each and links
+    // exactly the summed enrollments to it. An educator already paid by this run is skipped.
+    private static final String CREATE_PAYOUTS_SQL = """
+            WITH unpaid AS (
+                SELECT e.id, lc.educator_id, e.educator_earning, COALESCE(e.platform_fee, 0) AS platform_fee
+                FROM enrollments e
+                JOIN live_classes lc ON lc.id = e.live_class_id
+                WHERE lc.educator_id = ANY (?)
+                  AND e.payment_status = 'COMPLETED'
+                  AND e.payout_record_id IS NULL
+                  AND e.created_at < ?
+                FOR UPDATE OF e
+            ), totals AS (
+                SELECT educator_id, SUM(educator_earning) AS amount, SUM(platform_fee) AS platform_fee
+                FROM unpaid
+                GROUP BY educator_id
+                HAVING SUM(educator_earning) >= ?
+            ), inserted AS (
+                INSERT INTO payout_records (educator_id, amount, platform_fee_total, status, scheduled_at,
+                                            idempotency_key, payout_run_id)
+                SELECT educator_id, amount, platform_fee, 'PENDING', NOW(), ? || educator_id, ?
+                FROM totals
+                ON CONFLICT (idempotency_key) DO NOTHING
+                RETURNING id, educator_id, amount
+            ), linked AS (
+                UPDATE enrollments e SET payout_record_id = i.id
+                FROM unpaid u
+                JOIN inserted i ON i.educator_id = u.educator_id
+                WHERE e.id = u.id
+            )
+            SELECT educator_id, amount FROM inserted
+            """;
+
+    // A payout left PROCESSING for longer than the stale interval was claimed by a node that
+    // died before recording the outcome; its idempotency key makes sending it again safe.
+    // A retried payout waits until its next attempt is due.
+    private static final String CLAIM_PAYOUTS_SQL = """
+            UPDATE payout_records p SET status = 'PROCESSING', attempts = p.attempts + 1, next_attempt_at = NULL
+            FROM (SELECT id FROM payout_records
+                  WHERE payout_run_id = ?
+                    AND ((status = 'PENDING' AND (next_attempt_at IS NULL OR next_attempt_at <= NOW()))
+                         OR (status = 'PROCESSING' AND updated_at < NOW() - make_interval(secs => ?)))
+                  ORDER BY id
+                  LIMIT ?
+                  FOR UPDATE SKIP LOCKED) claimed
+            WHERE p.id = claimed.id
+            RETURNING p.id, p.educator_id, p.amount, p.idempotency_key, p.attempts
+            """;
+
+    private static final String COMPLETE_PAYOUT_SQL = """
+            UPDATE payout_records SET status = 'COMPLETED', payout_method = ?, payout_reference = ?,
+                                      processed_at = NOW(), failure_reason = NULL
+            WHERE id = ? AND status = 'PROCESSING'
+            """;
+
+    private static final String FAIL_PAYOUT_SQL = """
+            UPDATE payout_records SET status = 'FAILED', payout_method = ?, failure_reason = ?, processed_at = NOW()
+            WHERE id = ? AND status = 'PROCESSING'
+            """;
+
+    // The backoff doubles with every attempt already made
+    private static final String RETRY_PAYOUT_SQL = """
+            UPDATE payout_records SET status = 'PENDING', failure_reason = ?,
+                                      next_attempt_at = NOW() + make_interval(secs => ? * power(2, attempts - 1))
+            WHERE id = ? AND status = 'PROCESSING'
+            """;
+
+    // The earnings of a failed payout go back into the pool for the next run. Only payouts that
+    // really are FAILED: one whose outcome was recorded elsewhere first keeps its enrollments.
+    private static final String RELEASE_ENROLLMENTS_SQL = """
+            UPDATE enrollments e SET payout_record_id = NULL
+            WHERE e.payout_record_id = ANY (?)
+              AND EXISTS (SELECT 1 FROM payout_records p WHERE p.id = e.payout_record_id AND p.status = 'FAILED')
+            """;
+
+    private static final RowMapper<PayoutRun> RUN_MAPPER = (rs, rowNum) -> new PayoutRun(
+            rs.getObject("id", UUID.class),
+            rs.getDate("run_date").toLocalDate(),
+            rs.getString("status"),
+            rs.getTimestamp("cutoff").toInstant(),
+            rs.getObject("last_educator_id", UUID.class)
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The run for a date, created with the given cutoff unless it already exists.
+     */
+    public PayoutRun startRun(LocalDate runDate, Instant cutoff) {
+        jdbcTemplate.update(START_RUN_SQL, Date.valueOf(runDate), Timestamp.from(cutoff));
+        return jdbcTemplate.queryForObject(FIND_RUN_SQL, RUN_MAPPER, Date.valueOf(runDate));
+    }
+
+    public List<PayoutRun> findUnfinishedRuns() {
+        return jdbcTemplate.query(FIND_UNFINISHED_RUNS_SQL, RUN_MAPPER);
+    }
+
+    /**
+     * Take or renew the lease on a run. False while another node holds it.
+     */
+    public boolean claimRun(UUID runId, UUID node, Duration lease) {
+        return jdbcTemplate.update(CLAIM_RUN_SQL, node, lease.toSeconds(), runId, node) > 0;
+    }
+
+    /**
+     * Move the checkpoint past a chunk of educators and renew the lease. False when the lease
+     * was lost, in which case the chunk must be rolled back.
+     */
+    public boolean advanceRun(UUID runId, UUID node, UUID lastEducatorId, int educatorsPaid,
+                              BigDecimal amount, Duration lease) {
+        return jdbcTemplate.update(ADVANCE_RUN_SQL, lastEducatorId, educatorsPaid, amount,
+                lease.toSeconds(), runId, node) > 0;
+    }
+
+    /**
+     * Mark a run completed once none of its payouts is waiting or in flight.
+     */
+    public boolean finishRun(UUID runId, UUID node) {
+        return jdbcTemplate.update(FINISH_RUN_SQL, runId, node, runId) > 0;
+    }
+
+    /**
+     * The next chunk of educators in id order.
+     *
+     * @param afterId last educator of the previous chunk, or null for the first chunk
+     */
+    public List<UUID> findEducators(UUID afterId, int limit) {
+        if (afterId == null) {
+            return jdbcTemplate.queryForList(FIRST_EDUCATORS_SQL, UUID.class, limit);
+        }
+        return jdbcTemplate.queryForList(NEXT_EDUCATORS_SQL, UUID.class, afterId, limit);
+    }
+
+    /**
+     * Create the payouts of a run for a chunk of educators from their completed, unpaid
+     * enrollments created before the run's cutoff.
+     *
+     * @return one entry per payout created
+     */
+    public List<CreatedPayout> createPayouts(PayoutRun run, List<UUID> educatorIds, BigDecimal minimumAmount) {
+        if (educatorIds.isEmpty()) {
+            return List.of();
+        }
+        String keyPrefix = "payout:" + run.runDate() + ":";
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(CREATE_PAYOUTS_SQL);
+            statement.setArray(1, connection.createArrayOf("uuid", educatorIds.toArray()));
+            statement.setTimestamp(2, Timestamp.from(run.cutoff()));
+            statement.setBigDecimal(3, minimumAmount);
+            statement.setString(4, keyPrefix);
+            statement.setObject(5, run.id());
+            return statement;
+        }, (rs, rowNum) -> new CreatedPayout(rs.getObject("educator_id", UUID.class), rs.getBigDecimal("amount")));
+    }
+
+    /**
+     * Move up to {@code limit} payouts of a run to PROCESSING, skipping those claimed elsewhere.
+     */
+    public List<ClaimedPayout> claimPayouts(UUID runId, Duration staleAfter, int limit) {
+        return jdbcTemplate.query(CLAIM_PAYOUTS_SQL, (rs, rowNum) -> new ClaimedPayout(
+                rs.getObject("id", UUID.class),
+                rs.getObject("educator_id", UUID.class),
+                rs.getBigDecimal("amount"),
+                rs.getString("idempotency_key"),
+                rs.getInt("attempts")
+        ), runId, staleAfter.toSeconds(), limit);
+    }
+
+    /**
+     * Record what the payment processor did with a batch of claimed payouts. Outcomes for
+     * payouts no longer PROCESSING, e.g. taken over as stale by another node, are ignored.
+     *
+     * @param retryBackoff delay before the first retry, doubled for every further attempt
+     */
+    public void recordOutcomes(String payoutMethod, List<PayoutOutcome> outcomes, Duration retryBackoff) {
+        List<Object[]> completed = new ArrayList<>();
+        List<Object[]> failed = new ArrayList<>();
+        List<Object[]> retried = new ArrayList<>();
+        List<UUID> released = new ArrayList<>();
+        for (PayoutOutcome outcome : outcomes) {
+            switch (outcome.status()) {
+                case COMPLETED -> completed.add(new Object[]{payoutMethod, outcome.reference(), outcome.payoutId()});
+                case FAILED -> {
+                    failed.add(new Object[]{payoutMethod, outcome.failureReason(), outcome.payoutId()});
+                    released.add(outcome.payoutId());
+                }
+                case RETRY -> retried.add(new Object[]{outcome.failureReason(), retryBackoff.toSeconds(), outcome.payoutId()});
+            }
+        }
+        if (!completed.isEmpty()) {
+            jdbcTemplate.batchUpdate(COMPLETE_PAYOUT_SQL, completed);
+        }
+        if (!failed.isEmpty()) {
+            jdbcTemplate.batchUpdate(FAIL_PAYOUT_SQL, failed);
+            jdbcTemplate.update(connection -> {
+                Array ids = connection.createArrayOf("uuid", released.toArray());
+                PreparedStatement statement = connection.prepareStatement(RELEASE_ENROLLMENTS_SQL);
+                statement.setArray(1, ids);
+                return statement;
+            });
+        }
+        if (!retried.isEmpty()) {
+            jdbcTemplate.batchUpdate(RETRY_PAYOUT_SQL, retried);
+        }
+    }
+
+    public record PayoutRun(UUID id, LocalDate runDate, String status, Instant cutoff, UUID lastEducatorId) {
+
+        public boolean isRunning() {
+            return "RUNNING".equals(status);
+        }
+    }
+
+    public record CreatedPayout(UUID educatorId, BigDecimal amount) {
+    }
+
+    public record ClaimedPayout(UUID id, UUID educatorId, BigDecimal amount, String idempotencyKey, int attempts) {
+    }
+
+    public record PayoutOutcome(UUID payoutId, UUID educatorId, Status status, String reference, String failureReason) {
+
+        public enum Status {
+            COMPLETED, FAILED, RETRY
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.lumera.academy.repository;
+
+import com.lumera.academy.entity.WatchCoverage;
+import com.lumera.academy.entity.WatchProgress;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * JDBC access for batched watch progress writes. Heartbeats are applied with
+ * set-based upserts so many (user, class) rows can be written in one round trip.
+ * Coverage bitmaps are OR-ed into the stored one, so writers never lose each other's segments.
+ * The stored coverage is first advanced from its last position to the write's first position,
+ * as a single heartbeat would, so the stretch before each batch is credited too.
+ */
+@Repository
+@RequiredArgsConstructor
+public class WatchProgressBatchRepository {
+
+    private static final String FIND_SEED_SQL = """
+            SELECT lc.title, wp.id, wp.watched_seconds, wp.total_duration_seconds, wp.last_position,
+                   wp.completed, wp.completed_at, wp.coverage
+            FROM live_classes lc
+            LEFT JOIN watch_progress wp ON wp.live_class_id = lc.id AND wp.user_id = ?
+            WHERE lc.id = ?
+            """;
+
+    private static final String UPSERT_PROGRESS_SQL = """
+            INSERT INTO watch_progress (user_id, live_class_id, watched_seconds, total_duration_seconds,
+                                        coverage, watch_percentage, last_position, last_watched_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (user_id, live_class_id) DO UPDATE SET
+                watched_seconds = GREATEST(watch_progress.watched_seconds, EXCLUDED.watched_seconds),
+                total_duration_seconds = EXCLUDED.total_duration_seconds,
+                (coverage, watch_percentage) = (
+                    SELECT m.coverage, watch_coverage_percentage(m.coverage, EXCLUDED.total_duration_seconds)
+                    FROM (SELECT watch_coverage_or(
+                                         watch_coverage_advance(watch_progress.coverage, watch_progress.last_position,
+                                                                ?, ?, EXCLUDED.total_duration_seconds),
+                                         EXCLUDED.coverage) AS coverage
+                          OFFSET 0) m),
+                last_position = EXCLUDED.last_position,
+                last_watched_at = GREATEST(watch_progress.last_watched_at, EXCLUDED.last_watched_at)
+            """;
+
+    // Guarded so that exactly one writer observes the transition, however many nodes race for it
+    private static final String MARK_COMPLETED_SQL = """
+            UPDATE watch_progress SET completed = TRUE, completed_at = ?
+            WHERE user_id = ? AND live_class_id = ? AND completed = FALSE AND watch_percentage >= ?
+            """;
+
+    private static final String FIND_UNCERTIFIED_SQL = """
+            SELECT wp.user_id, wp.live_class_id
+            FROM watch_progress wp
+            JOIN enrollments e ON e.student_id = wp.user_id AND e.live_class_id = wp.live_class_id
+            WHERE wp.completed = TRUE
+              AND NOT EXISTS (SELECT 1 FROM certificates c
+                              WHERE c.user_id = wp.user_id AND c.live_class_id = wp.live_class_id)
+            ORDER BY wp.completed_at
+            LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Load the persisted state a buffered entry starts from. Empty when the class does not exist;
+     * a class without a progress row yields a seed with zeroed counters.
+     */
+    public Optional<ProgressSeed> findSeed(UUID userId, UUID liveClassId) {
+        List<ProgressSeed> seeds = jdbcTemplate.query(FIND_SEED_SQL, (rs, rowNum) -> {
+            Timestamp completedAt = rs.getTimestamp("completed_at");
+            return new ProgressSeed(
+                    rs.getString("title"),
+                    rs.getObject("id", UUID.class),
+                    rs.getInt("watched_seconds"),
+                    rs.getInt("total_duration_seconds"),
+                    rs.getInt("last_position"),
+                    rs.getBoolean("completed"),
+                    completedAt != null ? completedAt.toInstant() : null,
+                    rs.getBytes("coverage")
+            );
+        }, userId, liveClassId);
+        return seeds.stream().findFirst();
+    }
+
+    public void upsertAll(List<ProgressWrite> writes) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(writes.size());
+        for (ProgressWrite write : writes) {
+            args.add(new Object[]{
+                    write.userId(),
+                    write.liveClassId(),
+                    write.watchedSeconds(),
+                    write.totalDurationSeconds(),
+                    write.coverage(),
+                    write.watchPercentage(),
+                    write.lastPosition(),
+                    Timestamp.from(write.lastWatchedAt()),
+                    write.firstPosition(),
+                    WatchCoverage.MAX_CONTIGUOUS_GAP_SECONDS
+            });
+        }
+        jdbcTemplate.batchUpdate(UPSERT_PROGRESS_SQL, args);
+    }
+
+    /**
+     * Flag the given rows as completed where the persisted percentage has reached the threshold.
+     *
+     * @return the keys whose row transitioned to completed in this call
+     */
+    public List<ProgressKey> markCompleted(List<ProgressKey> candidates, Instant completedAt) {
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        Timestamp timestamp = Timestamp.from(completedAt);
+        List<Object[]> args = new ArrayList<>(candidates.size());
+        for (ProgressKey key : candidates) {
+            args.add(new Object[]{timestamp, key.userId(), key.liveClassId(), WatchProgress.COMPLETION_THRESHOLD});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(MARK_COMPLETED_SQL, args);
+
+        List<ProgressKey> transitioned = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                transitioned.add(candidates.get(i));
+            }
+        }
+        return transitioned;
+    }
+
+    /**
+     * Completed, enrolled (user, class) pairs that have no certificate yet, oldest completion first.
+     */
+    public List<ProgressKey> findCompletedWithoutCertificate(int limit) {
+        return jdbcTemplate.query(FIND_UNCERTIFIED_SQL, (rs, rowNum) -> new ProgressKey(
+                rs.getObject("user_id", UUID.class),
+                rs.getObject("live_class_id", UUID.class)
+        ), limit);
+    }
+
+    public record ProgressKey(UUID userId, UUID liveClassId) {
+    }
+
+    public record ProgressSeed(
+            String classTitle,
+            UUID progressId,
+            int watchedSeconds,
+            int totalDurationSeconds,
+            int lastPosition,
+            boolean completed,
+            Instant completedAt,
+            byte[] coverage
+    ) {
+    }
+
+    public record ProgressWrite(
+            UUID userId,
+            UUID liveClassId,
+            int watchedSeconds,
+            int totalDurationSeconds,
+            int firstPosition,
+            int lastPosition,
+            byte[] coverage,
+            double watchPercentage,
+            Instant lastWatchedAt
+    ) {
+        public ProgressKey key() {
+            return new ProgressKey(userId, liveClassId);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -26,6 +27,84 @@ public interface WatchProgressRepository extends JpaRepository<WatchProgress, UU
     @Query("SELECT wp FROM WatchProgress wp WHERE wp.liveClass.educator.id = :educatorId AND wp.completed = true")
     List<WatchProgress> findCompletedByEducatorId(@Param("educatorId") UUID educatorId);
 
-    @Query("SELECT COUNT(wp) FROM WatchProgress wp WHERE wp.liveClass.educator.id = :educatorId AND wp.completed = true")
-    long countCompletedByEducatorId(@Param("educatorId") UUID educatorId);
+    /**
+     * Apply one heartbeat in a single statement, mirroring {@link WatchProgress#updateProgress(int, int)}:
+     * playback since the previous report is merged into the segment coverage, the percentage is
+     * derived from it, watched seconds only move forward and completion is sticky once the threshold
+     * is reached. Positions are clamped to the recording. The caller supplies coverage and percentage
+     * for a brand-new row. On conflict the coverage is advanced once and every derived column
+     * is set from that result; OFFSET 0 keeps the planner from inlining the call into each column.
+     *
+     * completed_at is stamped with {@code now} only by the statement that performs the transition,
+     * which is how RETURNING recovers the prior flag without a read that could race with a
+     * concurrent heartbeat.
+     */
+    @Query(value = """
+            INSERT INTO watch_progress AS wp (user_id, live_class_id, watched_seconds, total_duration_seconds,
+                                              coverage, watch_percentage, last_position, completed, completed_at,
+                                              last_watched_at)
+            VALUES (:userId, :liveClassId, LEAST(GREATEST(:position, 0), :totalDuration), :totalDuration,
+                    :initialCoverage, :initialPercentage, LEAST(GREATEST(:position, 0), :totalDuration),
+                    :initialPercentage >= :threshold,
+                    CASE WHEN :initialPercentage >= :threshold THEN CAST(:now AS timestamptz) END,
+                    CAST(:now AS timestamptz))
+            ON CONFLICT (user_id, live_class_id) DO UPDATE SET
+                watched_seconds = GREATEST(wp.watched_seconds, EXCLUDED.watched_seconds),
+                total_duration_seconds = EXCLUDED.total_duration_seconds,
+                (coverage, watch_percentage, last_position, completed, completed_at) = (
+                    SELECT a.coverage, a.percentage, EXCLUDED.last_position,
+                           wp.completed OR a.percentage >= :threshold,
+                           CASE WHEN wp.completed THEN wp.completed_at
+                                WHEN a.percentage >= :threshold THEN EXCLUDED.last_watched_at
+                           END
+                    FROM (SELECT c.coverage,
+                                 watch_coverage_percentage(c.coverage, EXCLUDED.total_duration_seconds) AS percentage
+                          FROM (SELECT watch_coverage_advance(wp.coverage, wp.last_position, EXCLUDED.last_position,
+                                                              :maxGap, EXCLUDED.total_duration_seconds) AS coverage
+                                OFFSET 0) c) a),
+                last_watched_at = EXCLUDED.last_watched_at
+            RETURNING wp.id AS "id",
+                      (SELECT lc.title FROM live_classes lc WHERE lc.id = wp.live_class_id) AS "classTitle",
+                      wp.watched_seconds AS "watchedSeconds",
+                      wp.total_duration_seconds AS "totalDurationSeconds",
+                      wp.watch_percentage AS "watchPercentage",
+                      wp.last_position AS "lastPosition",
+                      wp.completed AS "completed",
+                      wp.completed AND wp.completed_at IS DISTINCT FROM CAST(:now AS timestamptz) AS "wasCompleted",
+                      wp.completed_at AS "completedAt",
+                      wp.last_watched_at AS "lastWatchedAt"
+            """, nativeQuery = true)
+    UpsertResult upsertProgress(
+            @Param("userId") UUID userId,
+            @Param("liveClassId") UUID liveClassId,
+            @Param("position") int position,
+            @Param("totalDuration") int totalDuration,
+            @Param("initialCoverage") byte[] initialCoverage,
+            @Param("initialPercentage") double initialPercentage,
+            @Param("maxGap") int maxGap,
+            @Param("threshold") double threshold,
+            @Param("now") Instant now
+    );
+
+    interface UpsertResult {
+        UUID getId();
+
+        String getClassTitle();
+
+        Integer getWatchedSeconds();
+
+        Integer getTotalDurationSeconds();
+
+        Double getWatchPercentage();
+
+        Integer getLastPosition();
+
+        Boolean getCompleted();
+
+        Boolean getWasCompleted();
+
+        Instant getCompletedAt();
+
+        Instant getLastWatchedAt();
+    }
 }
@@ -0,0 +1,246 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.config.CertificateProperties;
+import com.lumera.academy.dto.CertificateDTO;
+import com.lumera.academy.event.CertificateIssuedEvent;
+import com.lumera.academy.event.ClassEndedEvent;
+import com.lumera.academy.repository.CertificateBatchRepository;
+import com.lumera.academy.repository.CertificateBatchRepository.CertificateInsert;
+import com.lumera.academy.repository.CertificateBatchRepository.EligibleEnrollment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues the certificates of every eligible attendee once a class ends.
+ *
+ * A single coordinator thread loads the eligible enrollments in one query, inserts the
+ * certificates in one JDBC batch and flags the enrollments with one UPDATE, all in one
+ * transaction. The PDFs are then pre-rendered into the disk cache on a small bounded pool,
+ * so the first downloads do not all render at once. Issuance is idempotent: running it again
+ * for the same class only picks up enrollments that still have no certificate. Classes dropped
+ * because the queue was full, or whose issuance failed, are picked up by a periodic sweep.
+ */
+@Component
+@Slf4j
+public class CertificateBulkIssuer {
+
+    private final CertificateBatchRepository batchRepository;
+    private final CertificateNumberAllocator numberAllocator;
+    private final CertificatePdfRenderer pdfRenderer;
+    private final CertificatePdfCache pdfCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final CertificateProperties.Bulk properties;
+
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor coordinator;
+    private final ThreadPoolExecutor renderers;
+
+    private final Timer issuanceTimer;
+    private final Counter issued;
+    private final Counter prerendered;
+
+    public CertificateBulkIssuer(CertificateBatchRepository batchRepository,
+                                 CertificateNumberAllocator numberAllocator,
+                                 CertificatePdfRenderer pdfRenderer,
+                                 CertificatePdfCache pdfCache,
+                                 ApplicationEventPublisher eventPublisher,
+                                 TransactionTemplate transactionTemplate,
+                                 CertificateProperties certificateProperties,
+                                 MeterRegistry meterRegistry) {
+        this.batchRepository = batchRepository;
+        this.numberAllocator = numberAllocator;
+        this.pdfRenderer = pdfRenderer;
+        this.pdfCache = pdfCache;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = certificateProperties.getBulk();
+
+        this.coordinator = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                new CustomizableThreadFactory("CertificateBulk-"), new ThreadPoolExecutor.AbortPolicy());
+        // Caller-runs makes the coordinator render too once the queue is full, which bounds memory
+        int threads = properties.getRenderThreads();
+        this.renderers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                new CustomizableThreadFactory("CertificateRender-"), new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.issuanceTimer = Timer.builder("certificates.bulk.duration")
+                .description("Time to issue and pre-render the certificates of an ended class")
+                .register(meterRegistry);
+        this.issued = Counter.builder("certificates.bulk.issued").register(meterRegistry);
+        this.prerendered = Counter.builder("certificates.bulk.prerendered").register(meterRegistry);
+    }
+
+    @TransactionalEventListener
+    public void onClassEnded(ClassEndedEvent event) {
+        if (!submit(event.liveClassId())) {
+            log.warn("Bulk certificate queue is full, class {} is left for the sweep", event.liveClassId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.certificates.bulk.sweep-interval-ms:600000}",
+            initialDelayString = "${app.certificates.bulk.sweep-interval-ms:600000}")
+    public void sweep() {
+        List<UUID> classes = batchRepository.findClassesMissingCertificates(properties.getSweepBatchSize());
+        if (classes.isEmpty()) {
+            return;
+        }
+        log.info("Found {} ended classes with certificates still to issue - enqueueing", classes.size());
+        for (UUID liveClassId : classes) {
+            if (!submit(liveClassId)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Issue the missing certificates of a class and pre-render their PDFs.
+     */
+    public void issueForClass(UUID liveClassId) {
+        Map<UUID, EligibleEnrollment> enrollments = new HashMap<>();
+        List<CertificateInsert> inserted;
+        try {
+            inserted = transactionTemplate.execute(status -> insert(liveClassId, enrollments));
+        } catch (RuntimeException e) {
+            log.error("Bulk certificate issuance for class {} failed", liveClassId, e);
+            return;
+        }
+
+        if (inserted.isEmpty()) {
+            return;
+        }
+        issued.increment(inserted.size());
+        log.info("Issued {} certificates for class {}", inserted.size(), liveClassId);
+
+        List<CertificateDTO> certificates = new ArrayList<>(inserted.size());
+        for (CertificateInsert certificate : inserted) {
+            certificates.add(toDto(certificate, enrollments.get(certificate.userId())));
+        }
+        prerender(certificates);
+        certificates.forEach(certificate -> eventPublisher.publishEvent(new CertificateIssuedEvent(certificate)));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        coordinator.shutdown();
+        if (!coordinator.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Bulk certificate issuance still running at shutdown");
+            coordinator.shutdownNow();
+        }
+        renderers.shutdownNow();
+    }
+
+    // False when the queue is full; a class already queued counts as submitted
+    private boolean submit(UUID liveClassId) {
+        if (!queued.add(liveClassId)) {
+            return true;
+        }
+        try {
+            coordinator.execute(() -> {
+                try {
+                    issuanceTimer.record(() -> issueForClass(liveClassId));
+                } finally {
+                    queued.remove(liveClassId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.remove(liveClassId);
+            return false;
+        }
+    }
+
+    private List<CertificateInsert> insert(UUID liveClassId, Map<UUID, EligibleEnrollment> enrollments) {
+        List<EligibleEnrollment> eligible = batchRepository.findEligible(liveClassId);
+        if (eligible.isEmpty()) {
+            return List.of();
+        }
+        Instant now = Instant.now();
+        List<String> numbers = numberAllocator.next(eligible.size());
+        List<CertificateInsert> certificates = new ArrayList<>(eligible.size());
+        for (int i = 0; i < eligible.size(); i++) {
+            EligibleEnrollment enrollment = eligible.get(i);
+            enrollments.put(enrollment.userId(), enrollment);
+            certificates.add(new CertificateInsert(UUID.randomUUID(), numbers.get(i),
+                    enrollment.userId(), liveClassId, now));
+        }
+        List<CertificateInsert> inserted = batchRepository.insertAll(certificates);
+        batchRepository.markIssued(liveClassId);
+        return inserted;
+    }
+
+    private void prerender(List<CertificateDTO> certificates) {
+        List<Future<UUID>> renders = new ArrayList<>(certificates.size());
+        for (CertificateDTO certificate : certificates) {
+            renders.add(renderers.submit(() -> {
+                pdfCache.put(certificate.getId(), pdfRenderer.render(toPdfData(certificate)));
+                return certificate.getId();
+            }));
+        }
+
+        Set<UUID> rendered = new HashSet<>(renders.size());
+        for (Future<UUID> render : renders) {
+            try {
+                rendered.add(render.get());
+            } catch (ExecutionException e) {
+                // Left to be rendered on first download
+                log.warn("Could not pre-render certificate PDF: {}", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        batchRepository.updatePdfUrls(rendered);
+        prerendered.increment(rendered.size());
+        certificates.forEach(certificate -> {
+            if (rendered.contains(certificate.getId())) {
+                certificate.setPdfUrl("/v1/certificates/verify/" + certificate.getCertificateNumber() + "/pdf");
+            }
+        });
+    }
+
+    private static CertificateDTO toDto(CertificateInsert certificate, EligibleEnrollment enrollment) {
+        return CertificateDTO.builder()
+                .id(certificate.id())
+                .certificateNumber(certificate.certificateNumber())
+                .userId(certificate.userId())
+                .studentName(enrollment.studentName())
+                .liveClassId(certificate.liveClassId())
+                .className(enrollment.className())
+                .educatorName(enrollment.educatorName())
+                .issuedAt(certificate.issuedAt())
+                .build();
+    }
+
+    private static CertificatePdfData toPdfData(CertificateDTO certificate) {
+        return new CertificatePdfData(certificate.getCertificateNumber(), certificate.getStudentName(),
+                certificate.getClassName(), certificate.getEducatorName(), certificate.getIssuedAt());
+    }
+
+}
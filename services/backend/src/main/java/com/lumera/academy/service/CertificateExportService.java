@@ -0,0 +1,208 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.config.CertificateProperties;
+import com.lumera.academy.entity.LiveClass;
+import com.lumera.academy.entity.User;
+import com.lumera.academy.exception.BadRequestException;
+import com.lumera.academy.exception.ResourceNotFoundException;
+import com.lumera.academy.exception.ServiceOverloadedException;
+import com.lumera.academy.repository.CertificateBatchRepository;
+import com.lumera.academy.repository.CertificateBatchRepository.ExportRow;
+import com.lumera.academy.repository.LiveClassRepository;
+import com.lumera.academy.repository.UserRepository;
+import com.lumera.academy.service.CertificatePdfCache.CertificatePdf;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams every valid certificate of a class to the client as one ZIP archive.
+ *
+ * Certificates are read in keyset pages and rendered (or taken from the PDF cache) on a shared
+ * pool. Each export keeps at most {@code window} renders in flight and writes entries in the
+ * order they complete, so memory stays flat however large the class is. A cached PDF is opened
+ * when it is looked up, so the export's own renders evicting it cannot fail the archive.
+ */
+@Service
+@Slf4j
+public class CertificateExportService {
+
+    private static final long RETRY_AFTER_SECONDS = 30;
+
+    private final CertificateBatchRepository batchRepository;
+    private final CertificateService certificateService;
+    private final UserRepository userRepository;
+    private final LiveClassRepository liveClassRepository;
+    private final CertificateProperties.Export properties;
+
+    private final ExecutorService renderers;
+    private final Semaphore exports;
+
+    public CertificateExportService(CertificateBatchRepository batchRepository,
+                                    CertificateService certificateService,
+                                    UserRepository userRepository,
+                                    LiveClassRepository liveClassRepository,
+                                    CertificateProperties certificateProperties) {
+        this.batchRepository = batchRepository;
+        this.certificateService = certificateService;
+        this.userRepository = userRepository;
+        this.liveClassRepository = liveClassRepository;
+        this.properties = certificateProperties.getExport();
+
+        // The queue is bounded in practice by maxConcurrent * window
+        this.renderers = Executors.newFixedThreadPool(properties.getRenderThreads(),
+                new CustomizableThreadFactory("CertificateExport-"));
+        this.exports = new Semaphore(properties.getMaxConcurrent());
+    }
+
+    /**
+     * How long an export may stream before the request times out.
+     */
+    public Duration getTimeout() {
+        return Duration.ofSeconds(properties.getTimeoutSeconds());
+    }
+
+    /**
+     * Check ownership up front, so errors are still reported as JSON, and return the archive writer.
+     * The export slot is freed when the writer finishes or, if it never runs, by the release
+     * handed to {@code onCompletion}; whichever comes first.
+     */
+    public StreamingResponseBody exportClassCertificates(UUID classId, String educatorEmail,
+                                                         Consumer<Runnable> onCompletion) {
+        User educator = userRepository.findByEmail(educatorEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "email", educatorEmail));
+
+        LiveClass liveClass = liveClassRepository.findByIdWithDetails(classId)
+                .orElseThrow(() -> new ResourceNotFoundException("LiveClass", "id", classId));
+
+        if (!liveClass.getEducator().getId().equals(educator.getId())) {
+            throw new BadRequestException("This class does not belong to you");
+        }
+
+        if (!exports.tryAcquire()) {
+            throw new ServiceOverloadedException("Too many certificate exports in progress", RETRY_AFTER_SECONDS);
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                exports.release();
+            }
+        };
+        onCompletion.accept(release);
+        return out -> {
+            try {
+                writeArchive(classId, out);
+            } finally {
+                release.run();
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderers.shutdownNow();
+    }
+
+    private void writeArchive(UUID classId, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // PDFs are already compressed
+        zip.setLevel(Deflater.BEST_SPEED);
+
+        CompletionService<RenderedPdf> completion = new ExecutorCompletionService<>(renderers);
+        int window = properties.getWindow();
+        int inFlight = 0;
+        int written = 0;
+        UUID afterId = null;
+        List<ExportRow> page;
+        try {
+            do {
+                page = batchRepository.findExportPage(classId, afterId, properties.getPageSize());
+                for (ExportRow row : page) {
+                    if (inFlight == window) {
+                        inFlight--;
+                        writeEntry(zip, take(completion));
+                        written++;
+                    }
+                    completion.submit(() -> render(row));
+                    inFlight++;
+                    afterId = row.id();
+                }
+            } while (page.size() == properties.getPageSize());
+
+            while (inFlight > 0) {
+                inFlight--;
+                writeEntry(zip, take(completion));
+                written++;
+            }
+        } finally {
+            // Cache hits hold their file open until written
+            discard(completion, inFlight);
+        }
+        zip.finish();
+        log.info("Exported {} certificates for class {}", written, classId);
+    }
+
+    private RenderedPdf render(ExportRow row) {
+        CertificatePdfData data = new CertificatePdfData(row.certificateNumber(), row.studentName(),
+                row.className(), row.educatorName(), row.issuedAt());
+        return new RenderedPdf(row.certificateNumber(),
+                certificateService.generateCertificatePdf(row.id(), data, row.pdfUrl()));
+    }
+
+    private static RenderedPdf take(CompletionService<RenderedPdf> completion) throws IOException {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Certificate export interrupted");
+        } catch (ExecutionException e) {
+            // Abort rather than hand out an archive that silently misses certificates
+            throw new IOException("Failed to render certificate for export", e.getCause());
+        }
+    }
+
+    private static void writeEntry(ZipOutputStream zip, RenderedPdf rendered) throws IOException {
+        try (CertificatePdf pdf = rendered.pdf()) {
+            zip.putNextEntry(new ZipEntry(rendered.certificateNumber() + ".pdf"));
+            pdf.writeTo(zip);
+            zip.closeEntry();
+        }
+    }
+
+    // Waits for renders an aborted export left in flight and closes what they opened
+    private static void discard(CompletionService<RenderedPdf> completion, int inFlight) {
+        for (int i = 0; i < inFlight; i++) {
+            try {
+                completion.take().get().pdf().close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.debug("Discarded failed certificate render: {}", e.getCause().getMessage());
+            }
+        }
+    }
+
+    private record RenderedPdf(String certificateNumber, CertificatePdf pdf) {
+    }
+}
@@ -0,0 +1,187 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.config.CertificateProperties;
+import com.lumera.academy.dto.CertificateDTO;
+import com.lumera.academy.event.CertificateIssuedEvent;
+import com.lumera.academy.event.ClassCompletedEvent;
+import com.lumera.academy.exception.BadRequestException;
+import com.lumera.academy.exception.ResourceNotFoundException;
+import com.lumera.academy.repository.WatchProgressBatchRepository;
+import com.lumera.academy.repository.WatchProgressBatchRepository.ProgressKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues certificates for completed classes off the request path.
+ *
+ * Completions arrive as {@link ClassCompletedEvent}s once the progress write has committed and
+ * are handed to a fixed pool with a bounded queue. Each (user, class) is queued at most once at a
+ * time, and issuance itself is idempotent, so duplicate events are harmless. Transient failures
+ * are retried with exponential backoff; anything dropped (full queue, exhausted retries, restart)
+ * is picked up again by a periodic sweep of completed progress rows without a certificate.
+ */
+@Component
+@Slf4j
+public class CertificateIssuanceWorker {
+
+    private final CertificateService certificateService;
+    private final WatchProgressBatchRepository batchRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CertificateProperties.Issuance properties;
+
+    private final Set<ProgressKey> pending = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retryScheduler;
+
+    private final Timer issuanceTimer;
+    private final Counter succeeded;
+    private final Counter retried;
+    private final Counter failed;
+    private final Counter rejected;
+
+    public CertificateIssuanceWorker(CertificateService certificateService,
+                                     WatchProgressBatchRepository batchRepository,
+                                     ApplicationEventPublisher eventPublisher,
+                                     CertificateProperties certificateProperties,
+                                     MeterRegistry meterRegistry) {
+        this.certificateService = certificateService;
+        this.batchRepository = batchRepository;
+        this.eventPublisher = eventPublisher;
+        this.properties = certificateProperties.getIssuance();
+
+        this.workers = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                new CustomizableThreadFactory("CertificateIssuer-"), new ThreadPoolExecutor.AbortPolicy());
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(
+                new CustomizableThreadFactory("CertificateRetry-"));
+
+        Gauge.builder("certificates.issuance.queued", workers, executor -> executor.getQueue().size())
+                .description("Completions waiting for a certificate worker")
+                .register(meterRegistry);
+        Gauge.builder("certificates.issuance.active", workers, ThreadPoolExecutor::getActiveCount)
+                .description("Certificates being issued right now")
+                .register(meterRegistry);
+        Gauge.builder("certificates.issuance.pending", pending, Set::size)
+                .description("Completions queued, in flight or waiting for a retry")
+                .register(meterRegistry);
+        this.issuanceTimer = Timer.builder("certificates.issuance.duration").register(meterRegistry);
+        this.succeeded = Counter.builder("certificates.issuance.succeeded").register(meterRegistry);
+        this.retried = Counter.builder("certificates.issuance.retried").register(meterRegistry);
+        this.failed = Counter.builder("certificates.issuance.failed").register(meterRegistry);
+        this.rejected = Counter.builder("certificates.issuance.rejected")
+                .description("Completions dropped because the queue was full; recovered by the sweep")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onClassCompleted(ClassCompletedEvent event) {
+        submit(new ProgressKey(event.userId(), event.liveClassId()));
+    }
+
+    /**
+     * Re-enqueue completions that never got their certificate.
+     */
+    @Scheduled(fixedDelayString = "${app.certificates.issuance.sweep-interval-ms:300000}",
+            initialDelayString = "${app.certificates.issuance.sweep-interval-ms:300000}")
+    public void sweep() {
+        List<ProgressKey> missing = batchRepository.findCompletedWithoutCertificate(properties.getSweepBatchSize());
+        if (missing.isEmpty()) {
+            return;
+        }
+        log.info("Found {} completed classes without a certificate - enqueueing", missing.size());
+        for (ProgressKey key : missing) {
+            if (workers.getQueue().remainingCapacity() == 0) {
+                break;
+            }
+            submit(key);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        retryScheduler.shutdownNow();
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("{} certificate issuances still pending at shutdown, the sweep will pick them up", pending.size());
+            workers.shutdownNow();
+        }
+    }
+
+    private void submit(ProgressKey key) {
+        if (pending.add(key)) {
+            dispatch(key, 1);
+        }
+    }
+
+    private void dispatch(ProgressKey key, int attempt) {
+        try {
+            workers.execute(() -> issue(key, attempt));
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            rejected.increment();
+            log.warn("Certificate issuance queue is full, deferring user {} class {} to the sweep",
+                    key.userId(), key.liveClassId());
+        }
+    }
+
+    private void issue(ProgressKey key, int attempt) {
+        try {
+            CertificateDTO certificate = issuanceTimer.record(
+                    () -> certificateService.issueCertificate(key.userId(), key.liveClassId()));
+            succeeded.increment();
+            pending.remove(key);
+            if (certificate != null) {
+                eventPublisher.publishEvent(new CertificateIssuedEvent(certificate));
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Another node issued it between our existence check and insert
+            succeeded.increment();
+            pending.remove(key);
+        } catch (BadRequestException | ResourceNotFoundException e) {
+            failed.increment();
+            pending.remove(key);
+            log.warn("Not issuing certificate for user {} class {}: {}", key.userId(), key.liveClassId(), e.getMessage());
+        } catch (RuntimeException e) {
+            if (attempt >= properties.getMaxAttempts()) {
+                failed.increment();
+                pending.remove(key);
+                log.error("Giving up on certificate for user {} class {} after {} attempts",
+                        key.userId(), key.liveClassId(), attempt, e);
+                return;
+            }
+            scheduleRetry(key, attempt, e);
+        }
+    }
+
+    private void scheduleRetry(ProgressKey key, int attempt, RuntimeException cause) {
+        long delayMs = properties.getRetryBackoffMs() << (attempt - 1);
+        log.warn("Certificate issuance for user {} class {} failed (attempt {}), retrying in {} ms",
+                key.userId(), key.liveClassId(), attempt, delayMs, cause);
+        retried.increment();
+        try {
+            retryScheduler.schedule(() -> dispatch(key, attempt + 1), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+        }
+    }
+}
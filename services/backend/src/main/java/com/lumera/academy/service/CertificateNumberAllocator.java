@@ -0,0 +1,88 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.repository.CertificateBatchRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out certificate numbers of the form {@code LBA-YYYY-NNNNNNN}.
+ *
+ * Each node reserves a block of consecutive values from certificate_number_seq with one
+ * nextval() and hands them out from memory with a lock-free increment; only the thread that
+ * finds the block exhausted goes back to the database. The sequence alone guarantees
+ * uniqueness across nodes, the year is only there for readability. Values that a node reserved
+ * but did not use before shutting down are skipped, so numbers have gaps.
+ */
+@Component
+@RequiredArgsConstructor
+public class CertificateNumberAllocator {
+
+    private static final Block EXHAUSTED = new Block(new AtomicLong(), 0);
+
+    private final CertificateBatchRepository batchRepository;
+
+    private final Object refillLock = new Object();
+    private volatile Block current = EXHAUSTED;
+    private volatile int blockSize;
+
+    public String next() {
+        while (true) {
+            Block block = current;
+            long value = block.next().getAndIncrement();
+            if (value < block.end()) {
+                return format(value);
+            }
+            refill(block);
+        }
+    }
+
+    /**
+     * Allocate {@code count} numbers for a bulk issuance, reserving all the blocks they need in
+     * one round trip instead of draining the shared block.
+     */
+    public List<String> next(int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        int size = blockSize();
+        List<Long> starts = batchRepository.reserveNumberBlocks((count + size - 1) / size);
+        List<String> numbers = new ArrayList<>(count);
+        for (long start : starts) {
+            for (long value = start; value < start + size && numbers.size() < count; value++) {
+                numbers.add(format(value));
+            }
+        }
+        return numbers;
+    }
+
+    private void refill(Block exhausted) {
+        synchronized (refillLock) {
+            if (current == exhausted) {
+                long start = batchRepository.reserveNumberBlocks(1).get(0);
+                current = new Block(new AtomicLong(start), start + blockSize());
+            }
+        }
+    }
+
+    private int blockSize() {
+        int size = blockSize;
+        if (size == 0) {
+            size = batchRepository.numberBlockSize();
+            blockSize = size;
+        }
+        return size;
+    }
+
+    private static String format(long value) {
+        return "LBA-" + Year.now(ZoneOffset.UTC).getValue() + "-" + value;
+    }
+
+    private record Block(AtomicLong next, long end) {
+    }
+}
@@ -0,0 +1,247 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.config.CertificateProperties;
+import com.lumera.academy.event.CertificateRevokedEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded, least-recently-used cache of rendered certificate PDFs on local disk.
+ *
+ * Files are named {@code <certificateId>-v<templateVersion>-<sha256>.pdf}: the template version
+ * invalidates every entry when the layout changes, and the content hash doubles as the strong
+ * ETag. The index is rebuilt from the file names on startup.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CertificatePdfCache {
+
+    private static final Pattern FILE_NAME = Pattern.compile("([0-9a-f-]{36})-v(\\d+)-([0-9a-f]{64})\\.pdf");
+
+    private final CertificateProperties properties;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<UUID, Entry> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    private Path directory;
+
+    @PostConstruct
+    void loadIndex() throws IOException {
+        directory = Path.of(properties.getPdfCache().getDirectory());
+        Files.createDirectories(directory);
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(Files::isRegularFile).toList();
+        }
+        List<Path> current = new ArrayList<>();
+        for (Path file : files) {
+            Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+            if (matcher.matches() && Integer.parseInt(matcher.group(2)) == CertificatePdfRenderer.TEMPLATE_VERSION) {
+                current.add(file);
+            } else {
+                Files.deleteIfExists(file);
+            }
+        }
+        current.sort((a, b) -> lastModified(a).compareTo(lastModified(b)));
+
+        synchronized (this) {
+            for (Path file : current) {
+                Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                matcher.matches();
+                long size = Files.size(file);
+                Entry previous = index.put(UUID.fromString(matcher.group(1)), new Entry(file, matcher.group(3), size));
+                totalBytes += size;
+                if (previous != null) {
+                    totalBytes -= previous.size();
+                    Files.deleteIfExists(previous.file());
+                }
+            }
+            evictOverflow();
+        }
+        log.info("Certificate PDF cache at {} holds {} files ({} bytes)", directory, index.size(), totalBytes);
+    }
+
+    /**
+     * Cached PDF for a certificate, if present and still on disk. The file is opened before the
+     * index lock is released, so a later eviction or revocation cannot pull it from under the
+     * response; the caller must write or close the returned PDF.
+     */
+    public synchronized Optional<CertificatePdf> get(UUID certificateId) {
+        Entry entry = index.get(certificateId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        try {
+            FileChannel channel = FileChannel.open(entry.file(), StandardOpenOption.READ);
+            return Optional.of(new CertificatePdf(entry.etag(), channel.size(), channel, null));
+        } catch (IOException e) {
+            remove(certificateId, entry);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store a rendered PDF, evicting least recently used entries beyond the size limit. The
+     * returned PDF is backed by {@code content}, so it stays valid whatever is evicted later.
+     */
+    public CertificatePdf put(UUID certificateId, byte[] content) {
+        String etag = sha256(content);
+        Path target = directory.resolve(certificateId + "-v" + CertificatePdfRenderer.TEMPLATE_VERSION + "-" + etag + ".pdf");
+        try {
+            Path temp = Files.createTempFile(directory, certificateId.toString(), ".tmp");
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The cache is an optimisation; serve the rendered bytes anyway
+            log.warn("Could not cache certificate PDF {}: {}", certificateId, e.getMessage());
+            return new CertificatePdf(etag, content.length, null, content);
+        }
+
+        synchronized (this) {
+            Entry previous = index.put(certificateId, new Entry(target, etag, content.length));
+            totalBytes += content.length;
+            if (previous != null) {
+                totalBytes -= previous.size();
+                if (!previous.file().equals(target)) {
+                    deleteQuietly(previous.file());
+                }
+            }
+            evictOverflow();
+        }
+        return new CertificatePdf(etag, content.length, null, content);
+    }
+
+    /**
+     * Drop the cached PDF once a revocation has committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCertificateRevoked(CertificateRevokedEvent event) {
+        invalidate(event.certificateId());
+    }
+
+    /**
+     * Drop the cached PDF of a certificate. Responses that already opened it finish normally.
+     */
+    public void invalidate(UUID certificateId) {
+        Entry entry;
+        synchronized (this) {
+            entry = index.remove(certificateId);
+            if (entry != null) {
+                totalBytes -= entry.size();
+            }
+        }
+        if (entry != null) {
+            deleteQuietly(entry.file());
+        }
+    }
+
+    private synchronized void remove(UUID certificateId, Entry entry) {
+        if (index.remove(certificateId, entry)) {
+            totalBytes -= entry.size();
+        }
+    }
+
+    private void evictOverflow() {
+        long limit = properties.getPdfCache().getMaxSizeBytes();
+        Iterator<Map.Entry<UUID, Entry>> eldest = index.entrySet().iterator();
+        while (totalBytes > limit && eldest.hasNext()) {
+            Entry entry = eldest.next().getValue();
+            eldest.remove();
+            totalBytes -= entry.size();
+            deleteQuietly(entry.file());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete cached certificate PDF {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Entry(Path file, String etag, long size) {
+    }
+
+    /**
+     * A rendered certificate PDF and its strong ETag, backed by an open cached file or by the
+     * rendered bytes. {@link #writeTo} closes the file; a PDF that is not written must be closed.
+     */
+    public record CertificatePdf(String etag, long size, FileChannel channel, byte[] content) implements AutoCloseable {
+
+        public void writeTo(OutputStream out) throws IOException {
+            if (channel == null) {
+                out.write(content);
+                return;
+            }
+            try (channel) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = 0;
+                while (position < size) {
+                    long transferred = channel.transferTo(position, size - position, target);
+                    if (transferred <= 0) {
+                        throw new EOFException("Cached certificate PDF ended early");
+                    }
+                    position += transferred;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.debug("Could not close cached certificate PDF: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
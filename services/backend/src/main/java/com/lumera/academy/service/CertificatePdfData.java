@@ -0,0 +1,26 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.entity.Certificate;
+
+import java.time.Instant;
+
+/**
+ * The per-certificate fields stamped onto the pre-rendered certificate template.
+ */
+public record CertificatePdfData(
+        String certificateNumber,
+        String studentName,
+        String className,
+        String educatorName,
+        Instant issuedAt
+) {
+    public static CertificatePdfData from(Certificate certificate) {
+        return new CertificatePdfData(
+                certificate.getCertificateNumber(),
+                certificate.getUser().getFullName(),
+                certificate.getLiveClass().getTitle(),
+                certificate.getLiveClass().getEducator().getFullName(),
+                certificate.getIssuedAt()
+        );
+    }
+}
@@ -0,0 +1,208 @@
+package com.lumera.academy.service;
+
+import com.lowagie.text.*;
+import com.lowagie.text.pdf.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Renders certificate PDFs from a template built once at startup.
+ *
+ * The border, corner decorations and all fixed wording are drawn into a one-page template PDF
+ * when the bean is created. The template is parsed into a small pool of readers, since a
+ * PdfReader must not be shared between concurrent writers. Each certificate is a new document
+ * that places the template page as an imported form XObject and draws the student name, class
+ * title, educator, issue date and certificate number over it, so neither the template nor any
+ * layout or font objects are rebuilt per request.
+ */
+@Component
+@Slf4j
+public class CertificatePdfRenderer {
+
+    /**
+     * Bump whenever the layout or stamped fields change, so cached PDFs are re-rendered.
+     */
+    public static final int TEMPLATE_VERSION = 1;
+
+    // Premium color palette
+    private static final Color CHAMPAGNE = new Color(201, 169, 98);
+    private static final Color CHAMPAGNE_DARK = new Color(166, 136, 70);
+    private static final Color CHARCOAL = new Color(51, 51, 51);
+    private static final Color TEXT_MUTED = new Color(107, 114, 128);
+    private static final Color BORDER_GOLD = new Color(212, 175, 55);
+
+    // Landscape A4
+    private static final Rectangle PAGE = PageSize.A4.rotate();
+    private static final float PAGE_WIDTH = PAGE.getWidth();
+    private static final float PAGE_HEIGHT = PAGE.getHeight();
+    private static final float CENTER_X = PAGE_WIDTH / 2;
+    private static final float CONTENT_LEFT = 60;
+    private static final float CONTENT_RIGHT = PAGE_WIDTH - 60;
+
+    // Signature block: two columns spanning 60% of the content width
+    private static final float SIGNATURE_WIDTH = (CONTENT_RIGHT - CONTENT_LEFT) * 0.6f;
+    private static final float SIGNATURE_LEFT = CENTER_X - SIGNATURE_WIDTH / 2;
+    private static final float EDUCATOR_X = SIGNATURE_LEFT + SIGNATURE_WIDTH / 4;
+    private static final float ACADEMY_X = SIGNATURE_LEFT + SIGNATURE_WIDTH * 3 / 4;
+    private static final float SIGNATURE_LINE_Y = 150;
+
+    private static final DateTimeFormatter ISSUED_ON = DateTimeFormatter.ofPattern("MMMM d, yyyy")
+            .withZone(ZoneId.systemDefault());
+
+    // Fonts for the stamped fields, shared read-only across renders
+    private static final Font NAME_FONT = new Font(Font.HELVETICA, 32, Font.BOLD, CHARCOAL);
+    private static final Font CLASS_FONT = new Font(Font.HELVETICA, 22, Font.BOLD, CHAMPAGNE_DARK);
+    private static final Font DATE_FONT = new Font(Font.HELVETICA, 12, Font.NORMAL, TEXT_MUTED);
+    private static final Font SIGNATURE_NAME_FONT = new Font(Font.HELVETICA, 12, Font.BOLD, CHARCOAL);
+    private static final Font FOOTER_FONT = new Font(Font.HELVETICA, 9, Font.NORMAL, TEXT_MUTED);
+    private static final Font VERIFY_FONT = new Font(Font.HELVETICA, 8, Font.ITALIC, TEXT_MUTED);
+
+    private final byte[] template;
+
+    // Parsed template readers, borrowed for one render at a time
+    private final Queue<PdfReader> templateReaders = new ConcurrentLinkedQueue<>();
+
+    public CertificatePdfRenderer() {
+        this.template = renderTemplate();
+        log.info("Certificate template rendered ({} bytes)", template.length);
+    }
+
+    public byte[] render(CertificatePdfData data) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(template.length + 2048);
+        render(data, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Stamp a certificate straight onto {@code out}, which is left open.
+     */
+    public void render(CertificatePdfData data, OutputStream out) {
+        try {
+            PdfReader reader = borrowTemplate();
+            Document document = new Document(PAGE, 0, 0, 0, 0);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
+            document.open();
+            PdfContentByte canvas = writer.getDirectContent();
+            canvas.addTemplate(writer.getImportedPage(reader, 1), 0, 0);
+
+            // Student name and class title may wrap, the remaining fields are single lines
+            stampCentered(canvas, data.studentName(), NAME_FONT, 290, 340);
+            stampCentered(canvas, data.className(), CLASS_FONT, 205, 262);
+            showCentered(canvas, "Issued on " + ISSUED_ON.format(data.issuedAt()), DATE_FONT, CENTER_X, 185);
+            showCentered(canvas, data.educatorName(), SIGNATURE_NAME_FONT, EDUCATOR_X, SIGNATURE_LINE_Y - 20);
+            showCentered(canvas, "Certificate ID: " + data.certificateNumber(), FOOTER_FONT, CENTER_X, 55);
+            showCentered(canvas, "Verify at lumera.academy/verify/" + data.certificateNumber(), VERIFY_FONT, CENTER_X, 42);
+
+            document.close();
+            // Only a reader that completed a render goes back to the pool
+            templateReaders.offer(reader);
+        } catch (DocumentException | IOException e) {
+            log.error("Failed to generate certificate PDF", e);
+            throw new RuntimeException("Failed to generate certificate PDF", e);
+        }
+    }
+
+    private PdfReader borrowTemplate() throws IOException {
+        PdfReader reader = templateReaders.poll();
+        return reader != null ? reader : new PdfReader(template);
+    }
+
+    private static byte[] renderTemplate() {
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            Document document = new Document(PAGE, 60, 60, 60, 60);
+            PdfWriter writer = PdfWriter.getInstance(document, baos);
+            document.open();
+
+            PdfContentByte canvas = writer.getDirectContent();
+            drawCertificateBorder(canvas);
+
+            showCentered(canvas, "CERTIFICATE OF", new Font(Font.HELVETICA, 14, Font.NORMAL, TEXT_MUTED), CENTER_X, 470);
+            showCentered(canvas, "COMPLETION", new Font(Font.HELVETICA, 42, Font.BOLD, CHAMPAGNE), CENTER_X, 425);
+            showCentered(canvas, "✦ ✦ ✦", new Font(Font.ZAPFDINGBATS, 12, Font.NORMAL, CHAMPAGNE), CENTER_X, 392);
+
+            Font introFont = new Font(Font.HELVETICA, 14, Font.NORMAL, TEXT_MUTED);
+            showCentered(canvas, "This is to certify that", introFont, CENTER_X, 355);
+            showCentered(canvas, "has successfully completed", introFont, CENTER_X, 272);
+
+            drawSignatureBlock(canvas);
+
+            document.close();
+            return baos.toByteArray();
+        } catch (DocumentException | IOException e) {
+            throw new IllegalStateException("Failed to render certificate template", e);
+        }
+    }
+
+    private static void drawCertificateBorder(PdfContentByte canvas) {
+        // Outer border
+        canvas.setColorStroke(BORDER_GOLD);
+        canvas.setLineWidth(3);
+        canvas.rectangle(30, 30, PAGE_WIDTH - 60, PAGE_HEIGHT - 60);
+        canvas.stroke();
+
+        // Inner border
+        canvas.setLineWidth(1);
+        canvas.rectangle(40, 40, PAGE_WIDTH - 80, PAGE_HEIGHT - 80);
+        canvas.stroke();
+
+        // Corner decorations
+        float cornerSize = 20;
+        float margin = 50;
+        drawCornerDecoration(canvas, margin, PAGE_HEIGHT - margin, cornerSize, true, true);
+        drawCornerDecoration(canvas, PAGE_WIDTH - margin, PAGE_HEIGHT - margin, cornerSize, false, true);
+        drawCornerDecoration(canvas, margin, margin, cornerSize, true, false);
+        drawCornerDecoration(canvas, PAGE_WIDTH - margin, margin, cornerSize, false, false);
+    }
+
+    private static void drawCornerDecoration(PdfContentByte canvas, float x, float y, float size, boolean left, boolean top) {
+        canvas.setColorStroke(CHAMPAGNE);
+        canvas.setLineWidth(2);
+
+        float hDir = left ? 1 : -1;
+        float vDir = top ? -1 : 1;
+
+        canvas.moveTo(x, y + (size * vDir));
+        canvas.lineTo(x, y);
+        canvas.lineTo(x + (size * hDir), y);
+        canvas.stroke();
+    }
+
+    private static void drawSignatureBlock(PdfContentByte canvas) {
+        canvas.setColorStroke(CHARCOAL);
+        canvas.setLineWidth(1);
+        canvas.moveTo(SIGNATURE_LEFT, SIGNATURE_LINE_Y);
+        canvas.lineTo(SIGNATURE_LEFT + SIGNATURE_WIDTH, SIGNATURE_LINE_Y);
+        canvas.stroke();
+
+        Font titleFont = new Font(Font.HELVETICA, 10, Font.NORMAL, TEXT_MUTED);
+        showCentered(canvas, "Educator", titleFont, EDUCATOR_X, SIGNATURE_LINE_Y - 34);
+        showCentered(canvas, "Luméra Beauty Academy", new Font(Font.HELVETICA, 12, Font.BOLD, CHAMPAGNE),
+                ACADEMY_X, SIGNATURE_LINE_Y - 20);
+        showCentered(canvas, "Official Certificate", titleFont, ACADEMY_X, SIGNATURE_LINE_Y - 34);
+    }
+
+    private static void showCentered(PdfContentByte canvas, String text, Font font, float x, float y) {
+        ColumnText.showTextAligned(canvas, Element.ALIGN_CENTER, new Phrase(text, font), x, y, 0);
+    }
+
+    /**
+     * Centered text that may wrap within the content width, laid out top-down in [lly, ury].
+     */
+    private static void stampCentered(PdfContentByte canvas, String text, Font font, float lly, float ury)
+            throws DocumentException {
+        ColumnText column = new ColumnText(canvas);
+        column.setSimpleColumn(new Phrase(text, font), CONTENT_LEFT, lly, CONTENT_RIGHT, ury,
+                font.getSize() * 1.2f, Element.ALIGN_CENTER);
+        column.go();
+    }
+}
@@ -0,0 +1,312 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.config.CertificateProperties;
+import com.lumera.academy.dto.CertificateDTO;
+import com.lumera.academy.event.CertificateIssuedEvent;
+import com.lumera.academy.event.CertificateRevokedEvent;
+import com.lumera.academy.repository.CertificateBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-memory front for public certificate verification.
+ *
+ * A Bloom filter over every issued number rejects unknown numbers without touching the
+ * database. Numbers that get past it but do not exist are remembered for a short while, and
+ * found certificates are kept as immutable views for a bounded time so revocations on other
+ * nodes are picked up. Certificates issued on this node are added as soon as they are issued;
+ * those issued elsewhere are pulled in by a periodic refresh, and a nightly rebuild drops
+ * deleted ones and resizes the filter as the table grows. Until a refresh sees them, numbers
+ * from the latest reserved block are let through to the database; numbers past that block are
+ * only let through once a re-read of the sequence, at most once a second, shows them reserved.
+ */
+@Component
+@Slf4j
+public class CertificateVerificationCache {
+
+    // Re-read a little before the last refresh so rows committed late are not missed
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(5);
+    // Probes past the latest known block re-read the sequence no more often than this
+    private static final long BLOCK_RECHECK_INTERVAL_MS = 1000;
+
+    private final CertificateBatchRepository batchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CertificateProperties.Verification properties;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Cached> found = new LinkedHashMap<>(256, 0.75f, true);
+    private final LinkedHashMap<String, Long> missing = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final Object refreshLock = new Object();
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+    private Instant refreshedAt;
+    // Values from here on may have been issued after the filter was last brought up to date
+    private volatile long unseenFrom;
+    // End of the latest block known to be reserved; values from here on cannot have been issued
+    private final AtomicLong reservedUntil = new AtomicLong();
+    private final AtomicLong blockCheckedAt = new AtomicLong();
+    private volatile int blockSize;
+    // Bumped on every revocation so a load that raced with one is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Counter rejected;
+    private final Counter hits;
+    private final Counter negativeHits;
+    private final Counter loads;
+
+    public CertificateVerificationCache(CertificateBatchRepository batchRepository,
+                                        TransactionTemplate transactionTemplate,
+                                        CertificateProperties certificateProperties,
+                                        MeterRegistry meterRegistry) {
+        this.batchRepository = batchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = certificateProperties.getVerification();
+
+        this.rejected = lookups(meterRegistry, "rejected");
+        this.hits = lookups(meterRegistry, "hit");
+        this.negativeHits = lookups(meterRegistry, "negative");
+        this.loads = lookups(meterRegistry, "loaded");
+    }
+
+    /**
+     * Whether a certificate with this number may exist. False is definite.
+     */
+    public boolean mightExist(String certificateNumber) {
+        BloomFilter current = filter;
+        // Until the first build every number has to be checked against the database
+        if (current == null || current.mightContain(certificateNumber)) {
+            return true;
+        }
+        long value = sequenceValue(certificateNumber);
+        return value >= unseenFrom && (value < reservedUntil.get() || value < recheckReservedUntil());
+    }
+
+    // Picks up blocks reserved elsewhere since the last refresh; one caller per interval reads
+    // the sequence, the others keep the bound they have
+    private long recheckReservedUntil() {
+        long now = System.currentTimeMillis();
+        long checkedAt = blockCheckedAt.get();
+        if (now - checkedAt < BLOCK_RECHECK_INTERVAL_MS || !blockCheckedAt.compareAndSet(checkedAt, now)) {
+            return reservedUntil.get();
+        }
+        return advanceReservedUntil(batchRepository.lastNumberBlock());
+    }
+
+    private long advanceReservedUntil(long lastBlock) {
+        return reservedUntil.accumulateAndGet(lastBlock + blockSize, Math::max);
+    }
+
+    /**
+     * Look up a certificate by number, calling {@code loader} only when neither the Bloom filter
+     * nor the caches can answer.
+     */
+    public Optional<CertificateDTO> get(String certificateNumber, Supplier<Optional<CertificateDTO>> loader) {
+        if (!mightExist(certificateNumber)) {
+            rejected.increment();
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        long invalidationsBefore;
+        synchronized (this) {
+            invalidationsBefore = invalidations.get();
+            Cached cached = found.get(certificateNumber);
+            if (cached != null && cached.expiresAt() > now) {
+                hits.increment();
+                return Optional.of(cached.view().toDto());
+            }
+            Long missingUntil = missing.get(certificateNumber);
+            if (missingUntil != null && missingUntil > now) {
+                negativeHits.increment();
+                return Optional.empty();
+            }
+        }
+
+        loads.increment();
+        Optional<CertificateDTO> loaded = loader.get();
+        synchronized (this) {
+            if (loaded.isPresent()) {
+                // A revocation during the load may have been read before it committed
+                if (invalidations.get() == invalidationsBefore) {
+                    putFound(View.from(loaded.get()), now);
+                }
+            } else {
+                missing.put(certificateNumber, now + properties.getNegativeTtlMs());
+                trim(missing, properties.getMaxNegativeEntries());
+            }
+        }
+        return loaded;
+    }
+
+    @EventListener
+    public void onCertificateIssued(CertificateIssuedEvent event) {
+        String number = event.certificate().getCertificateNumber();
+        add(number);
+        synchronized (this) {
+            missing.remove(number);
+            putFound(View.from(event.certificate()), System.currentTimeMillis());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCertificateRevoked(CertificateRevokedEvent event) {
+        synchronized (this) {
+            invalidations.incrementAndGet();
+            found.remove(event.certificateNumber());
+        }
+    }
+
+    /**
+     * Pull numbers issued since the last refresh into the Bloom filter, building it on first use.
+     */
+    @Scheduled(fixedDelayString = "${app.certificates.verification.refresh-interval-ms:30000}")
+    public void refresh() {
+        synchronized (refreshLock) {
+            if (filter == null) {
+                rebuildLocked();
+                return;
+            }
+            Instant startedAt = Instant.now();
+            long lastBlock = batchRepository.lastNumberBlock();
+            List<String> numbers = batchRepository.findNumbersCreatedSince(refreshedAt.minus(REFRESH_OVERLAP));
+            numbers.forEach(filter::add);
+            refreshedAt = startedAt;
+            unseenFrom = lastBlock;
+            advanceReservedUntil(lastBlock);
+        }
+    }
+
+    @Scheduled(cron = "${app.certificates.verification.rebuild-cron:0 15 4 * * *}")
+    public void rebuild() {
+        synchronized (refreshLock) {
+            rebuildLocked();
+        }
+    }
+
+    private void rebuildLocked() {
+        Instant startedAt = Instant.now();
+        blockSize = batchRepository.numberBlockSize();
+        long lastBlock = batchRepository.lastNumberBlock();
+        long count = batchRepository.countNumbers();
+        BloomFilter next = BloomFilter.create(Math.max(properties.getExpectedCertificates(), count * 2),
+                properties.getFalsePositiveRate());
+        // Numbers issued while the table is scanned are added to both filters
+        building = next;
+        try {
+            transactionTemplate.execute(status -> {
+                batchRepository.forEachNumber(next::add);
+                return null;
+            });
+            // Bounds first, so a probe that sees the new filter never checks them unset
+            unseenFrom = lastBlock;
+            advanceReservedUntil(lastBlock);
+            filter = next;
+            refreshedAt = startedAt;
+        } finally {
+            building = null;
+        }
+        log.info("Built certificate verification filter over {} numbers in {} ms",
+                count, Duration.between(startedAt, Instant.now()).toMillis());
+    }
+
+    // Reads building before filter, so a number is never lost while the rebuild swaps them
+    private void add(String number) {
+        BloomFilter pending = building;
+        if (pending != null) {
+            pending.add(number);
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.add(number);
+        }
+    }
+
+    // Numeric part of LBA-YYYY-NNNNNNN; anything else sorts below every sequence value
+    private static long sequenceValue(String certificateNumber) {
+        int dash = certificateNumber.lastIndexOf('-');
+        try {
+            return Long.parseLong(certificateNumber.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private void putFound(View view, long now) {
+        found.put(view.certificateNumber(), new Cached(view, now + properties.getTtlMs()));
+        trim(found, properties.getMaxEntries());
+    }
+
+    private static void trim(LinkedHashMap<String, ?> map, int maxEntries) {
+        Iterator<? extends Map.Entry<String, ?>> eldest = map.entrySet().iterator();
+        while (map.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("certificates.verification.lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Cached(View view, long expiresAt) {
+    }
+
+    /**
+     * Immutable copy of a verified certificate; callers get a fresh DTO on every hit.
+     */
+    private record View(
+            UUID id,
+            String certificateNumber,
+            UUID userId,
+            String studentName,
+            UUID liveClassId,
+            String className,
+            String educatorName,
+            Instant issuedAt,
+            Instant expiresAt,
+            String pdfUrl,
+            boolean revoked
+    ) {
+        static View from(CertificateDTO certificate) {
+            return new View(certificate.getId(), certificate.getCertificateNumber(), certificate.getUserId(),
+                    certificate.getStudentName(), certificate.getLiveClassId(), certificate.getClassName(),
+                    certificate.getEducatorName(), certificate.getIssuedAt(), certificate.getExpiresAt(),
+                    certificate.getPdfUrl(), certificate.isRevoked());
+        }
+
+        CertificateDTO toDto() {
+            return CertificateDTO.builder()
+                    .id(id)
+                    .certificateNumber(certificateNumber)
+                    .userId(userId)
+                    .studentName(studentName)
+                    .liveClassId(liveClassId)
+                    .className(className)
+                    .educatorName(educatorName)
+                    .issuedAt(issuedAt)
+                    .expiresAt(expiresAt)
+                    .pdfUrl(pdfUrl)
+                    .revoked(revoked)
+                    .build();
+        }
+    }
+}
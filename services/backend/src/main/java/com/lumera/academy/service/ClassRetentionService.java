@@ -0,0 +1,89 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.dto.ClassRetentionDTO;
+import com.lumera.academy.entity.LiveClass;
+import com.lumera.academy.exception.BadRequestException;
+import com.lumera.academy.exception.ResourceNotFoundException;
+import com.lumera.academy.repository.ClassRetentionRepository;
+import com.lumera.academy.repository.ClassRetentionRepository.RetentionBucket;
+import com.lumera.academy.repository.LiveClassRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ClassRetentionService {
+
+    private static final int COMPACT_BATCH_SIZE = 5000;
+
+    private final ClassRetentionRepository classRetentionRepository;
+    private final LiveClassRepository liveClassRepository;
+
+    /**
+     * Fold the deltas appended by heartbeats into the histogram. Each batch commits on its own.
+     */
+    @Scheduled(fixedDelayString = "${app.class-retention.compact-interval-ms:10000}")
+    public void compactDeltas() {
+        int total = 0;
+        int moved;
+        do {
+            moved = classRetentionRepository.compactDeltas(COMPACT_BATCH_SIZE);
+            total += moved;
+        } while (moved == COMPACT_BATCH_SIZE);
+        if (total > 0) {
+            log.debug("Folded {} class retention deltas", total);
+        }
+    }
+
+    /**
+     * Drop-off and retention curve of a class, read from the pre-aggregated histogram.
+     */
+    public ClassRetentionDTO getRetention(UUID classId, UUID educatorId) {
+        LiveClass liveClass = liveClassRepository.findById(classId)
+                .orElseThrow(() -> new ResourceNotFoundException("LiveClass", "id", classId));
+
+        if (!liveClass.getEducator().getId().equals(educatorId)) {
+            throw new BadRequestException("You can only view retention for your own classes");
+        }
+
+        long[] stopped = new long[ClassRetentionRepository.BUCKETS];
+        long[] watched = new long[ClassRetentionRepository.BUCKETS];
+        for (RetentionBucket row : classRetentionRepository.findBuckets(classId)) {
+            stopped[row.bucket()] = row.stoppedCount();
+            watched[row.bucket()] = row.watchedCount();
+        }
+
+        // Every viewer has exactly one resume position, so the drop-off column sums to the viewer count
+        long viewers = 0;
+        for (long count : stopped) {
+            viewers += count;
+        }
+
+        double width = 100.0 / ClassRetentionRepository.BUCKETS;
+        List<ClassRetentionDTO.Bucket> buckets = new ArrayList<>(ClassRetentionRepository.BUCKETS);
+        for (int i = 0; i < ClassRetentionRepository.BUCKETS; i++) {
+            buckets.add(ClassRetentionDTO.Bucket.builder()
+                    .index(i)
+                    .startPercent(i * width)
+                    .endPercent((i + 1) * width)
+                    .stoppedHere(stopped[i])
+                    .watched(watched[i])
+                    .retentionPercent(viewers > 0 ? (double) watched[i] / viewers * 100 : 0.0)
+                    .build());
+        }
+
+        return ClassRetentionDTO.builder()
+                .liveClassId(classId)
+                .classTitle(liveClass.getTitle())
+                .viewers(viewers)
+                .buckets(buckets)
+                .build();
+    }
+}
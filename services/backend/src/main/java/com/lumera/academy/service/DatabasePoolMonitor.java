@@ -0,0 +1,81 @@
+package com.lumera.academy.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-only view of the Hikari connection pool, used to adapt request handling to database load.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DatabasePoolMonitor {
+
+    private final DataSource dataSource;
+    private final MeterRegistry meterRegistry;
+
+    private volatile HikariDataSource hikari;
+
+    /**
+     * Connections in use plus threads waiting for one, relative to the pool size. Values above 1
+     * mean requests are queueing for a connection; 0 when the pool cannot be inspected.
+     */
+    public double pressure() {
+        HikariDataSource pool = hikari();
+        HikariPoolMXBean bean = pool != null ? pool.getHikariPoolMXBean() : null;
+        if (bean == null || pool.getMaximumPoolSize() <= 0) {
+            return 0.0;
+        }
+        return (double) (bean.getActiveConnections() + bean.getThreadsAwaitingConnection()) / pool.getMaximumPoolSize();
+    }
+
+    /**
+     * Threads currently blocked waiting for a connection.
+     */
+    public int threadsAwaitingConnection() {
+        HikariDataSource pool = hikari();
+        HikariPoolMXBean bean = pool != null ? pool.getHikariPoolMXBean() : null;
+        return bean != null ? bean.getThreadsAwaitingConnection() : 0;
+    }
+
+    /**
+     * Whether every connection in the pool is currently checked out.
+     */
+    public boolean isExhausted() {
+        HikariDataSource pool = hikari();
+        HikariPoolMXBean bean = pool != null ? pool.getHikariPoolMXBean() : null;
+        return bean != null && bean.getActiveConnections() >= pool.getMaximumPoolSize();
+    }
+
+    /**
+     * Longest connection acquisition in the recent metrics window, in milliseconds.
+     */
+    public double recentAcquireWaitMillis() {
+        Timer acquire = meterRegistry.find("hikaricp.connections.acquire").timer();
+        return acquire != null ? acquire.max(TimeUnit.MILLISECONDS) : 0.0;
+    }
+
+    private HikariDataSource hikari() {
+        HikariDataSource pool = hikari;
+        if (pool == null) {
+            try {
+                if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                    pool = dataSource.unwrap(HikariDataSource.class);
+                    hikari = pool;
+                }
+            } catch (SQLException e) {
+                log.debug("Connection pool is not inspectable: {}", e.getMessage());
+            }
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,149 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.config.EarningsReportProperties;
+import com.lumera.academy.entity.User;
+import com.lumera.academy.exception.ResourceNotFoundException;
+import com.lumera.academy.exception.ServiceOverloadedException;
+import com.lumera.academy.repository.EducatorEarningsRepository;
+import com.lumera.academy.repository.EducatorEarningsRepository.LedgerRow;
+import com.lumera.academy.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Streams an educator's full transaction history as CSV or PDF.
+ *
+ * Enrollments are walked in keyset pages on (created_at, id) and every page is written and
+ * flushed to the response before the next one is read, so memory stays flat and the client
+ * starts receiving data right away however long the history is.
+ */
+@Service
+@Slf4j
+public class EarningsExportService {
+
+    private static final String CSV_HEADER =
+            "date,enrollment_id,class,student,amount_paid,platform_fee,educator_earning,payment_status";
+
+    private final EducatorEarningsRepository earningsRepository;
+    private final EarningsReportService earningsReportService;
+    private final UserRepository userRepository;
+    private final EarningsReportProperties properties;
+
+    private final Semaphore exports;
+
+    public EarningsExportService(EducatorEarningsRepository earningsRepository,
+                                 EarningsReportService earningsReportService,
+                                 UserRepository userRepository,
+                                 EarningsReportProperties properties) {
+        this.earningsRepository = earningsRepository;
+        this.earningsReportService = earningsReportService;
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.exports = new Semaphore(properties.getMaxConcurrentExports());
+    }
+
+    /**
+     * Resolve the educator up front, so errors are still reported as JSON, and return the CSV writer.
+     */
+    public StreamingResponseBody exportCsv(String educatorEmail) {
+        User educator = findEducator(educatorEmail);
+        return limited(out -> writeCsv(educator.getId(), out));
+    }
+
+    /**
+     * How long an export may stream before the request times out.
+     */
+    public Duration getTimeout() {
+        return Duration.ofSeconds(properties.getExportTimeoutSeconds());
+    }
+
+    public StreamingResponseBody exportPdf(String educatorEmail) {
+        User educator = findEducator(educatorEmail);
+        return limited(out -> earningsReportService.writeLedger(educator, out, properties.getExportPageSize()));
+    }
+
+    private void writeCsv(UUID educatorId, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+
+        int pageSize = properties.getExportPageSize();
+        int written = 0;
+        LedgerRow last = null;
+        List<LedgerRow> page;
+        do {
+            page = earningsRepository.findLedgerPage(educatorId, last, pageSize);
+            for (LedgerRow row : page) {
+                writer.write(row.createdAt().toString());
+                writer.write(',');
+                writer.write(row.id().toString());
+                writer.write(',');
+                writer.write(csvField(row.classTitle()));
+                writer.write(',');
+                writer.write(csvField(row.studentName()));
+                writer.write(',');
+                writer.write(amount(row.amountPaid()));
+                writer.write(',');
+                writer.write(amount(row.platformFee()));
+                writer.write(',');
+                writer.write(amount(row.educatorEarning()));
+                writer.write(',');
+                writer.write(row.paymentStatus().name());
+                writer.write("\r\n");
+                last = row;
+            }
+            written += page.size();
+            writer.flush();
+        } while (page.size() == pageSize);
+        log.debug("Exported {} transactions as CSV for educator {}", written, educatorId);
+    }
+
+    private StreamingResponseBody limited(StreamingResponseBody body) {
+        if (!exports.tryAcquire()) {
+            throw new ServiceOverloadedException("Too many earnings exports in progress", properties.getRetryAfterSeconds());
+        }
+        return out -> {
+            try {
+                body.writeTo(out);
+            } finally {
+                exports.release();
+            }
+        };
+    }
+
+    private User findEducator(String educatorEmail) {
+        return userRepository.findByEmail(educatorEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "email", educatorEmail));
+    }
+
+    private static String amount(BigDecimal value) {
+        return value == null ? "0.00" : value.toPlainString();
+    }
+
+    // RFC 4180 quoting; a leading formula character is escaped so spreadsheets show it as text
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (!value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
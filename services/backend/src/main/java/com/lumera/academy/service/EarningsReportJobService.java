@@ -0,0 +1,422 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.config.EarningsReportProperties;
+import com.lumera.academy.dto.ReportJobDTO;
+import com.lumera.academy.entity.User;
+import com.lumera.academy.exception.BadRequestException;
+import com.lumera.academy.exception.ResourceNotFoundException;
+import com.lumera.academy.exception.ServiceOverloadedException;
+import com.lumera.academy.repository.EducatorEarningsRepository;
+import com.lumera.academy.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Renders earnings reports as background jobs on a dedicated bounded pool.
+ *
+ * A report is identified by the educator, the day and the time their earnings last changed
+ * (from the earnings rollup), so identical submissions share one job and a rendered report is
+ * served from local disk until new earnings arrive. The job id is derived from the report file
+ * name, so a node that never saw the submission resolves it from the educator's current report
+ * or from the file on disk. Downloads open the file before it can be superseded, so deleting an
+ * older version never cuts one short. Submissions beyond the queue capacity are answered with
+ * 429 instead of piling up behind the workers.
+ */
+@Service
+@Slf4j
+public class EarningsReportJobService {
+
+    private static final Pattern REPORT_FILE = Pattern.compile(
+            "([0-9a-f-]{36})-v(\\d+)-(\\d{4}-\\d{2}-\\d{2})-(\\d+)\\.pdf");
+
+    private final EarningsReportService earningsReportService;
+    private final EducatorEarningsRepository earningsRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTemplate;
+    private final EarningsReportProperties properties;
+
+    private final ThreadPoolExecutor workers;
+    private final Map<UUID, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<ReportKey, Job> jobsByKey = new ConcurrentHashMap<>();
+    private Path directory;
+
+    public EarningsReportJobService(EarningsReportService earningsReportService,
+                                    EducatorEarningsRepository earningsRepository,
+                                    UserRepository userRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    EarningsReportProperties properties) {
+        this.earningsReportService = earningsReportService;
+        this.earningsRepository = earningsRepository;
+        this.userRepository = userRepository;
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.properties = properties;
+
+        this.workers = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                new CustomizableThreadFactory("EarningsReport-"), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PostConstruct
+    void createDirectory() throws IOException {
+        directory = Path.of(properties.getDirectory());
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Start rendering the educator's current report, or join the job already covering it.
+     */
+    public ReportJobDTO submit(String educatorEmail) {
+        User educator = userRepository.findByEmail(educatorEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "email", educatorEmail));
+        return submit(educator.getId()).toDto();
+    }
+
+    public ReportJobDTO getJob(UUID jobId, String educatorEmail) {
+        return findJob(jobId, educatorEmail).toDto();
+    }
+
+    /**
+     * The rendered report of a completed job, already opened. The caller must close it.
+     */
+    public Report getReport(UUID jobId, String educatorEmail) {
+        Job job = findJob(jobId, educatorEmail);
+        if (job.status != ReportJobDTO.Status.COMPLETED) {
+            throw new BadRequestException("Report is not ready yet");
+        }
+        return open(job.file);
+    }
+
+    /**
+     * Submit the report and complete once it is rendered and opened, for the synchronous
+     * download endpoint; no request thread waits for the render. Completes with a 429 error
+     * when rendering takes longer than the sync wait.
+     */
+    public CompletableFuture<Report> awaitReport(String educatorEmail) {
+        User educator = userRepository.findByEmail(educatorEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "email", educatorEmail));
+        Job job = submit(currentKey(educator.getId()));
+
+        CompletableFuture<Report> report = new CompletableFuture<>();
+        // A copy, so the timeout ends this wait without failing the shared job
+        job.done.copy().orTimeout(properties.getSyncWaitSeconds(), TimeUnit.SECONDS).whenComplete((file, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof TimeoutException) {
+                report.completeExceptionally(new ServiceOverloadedException("Earnings report is still rendering",
+                        properties.getRetryAfterSeconds()));
+            } else if (cause != null) {
+                report.completeExceptionally(new RuntimeException("Failed to generate PDF report", cause));
+            } else {
+                try {
+                    report.complete(open(file));
+                } catch (RuntimeException openFailure) {
+                    report.completeExceptionally(openFailure);
+                }
+            }
+        });
+        return report;
+    }
+
+    /**
+     * Forget finished jobs and delete reports nobody downloaded within the retention period.
+     */
+    @Scheduled(fixedDelay = 600000)
+    public void cleanUp() {
+        Instant jobCutoff = Instant.now().minus(Duration.ofMinutes(properties.getJobRetentionMinutes()));
+        jobs.values().removeIf(job -> job.completedAt != null && job.completedAt.isBefore(jobCutoff));
+        jobsByKey.values().removeIf(job -> job.completedAt != null && job.completedAt.isBefore(jobCutoff));
+
+        FileTime fileCutoff = FileTime.from(Instant.now().minus(Duration.ofHours(properties.getRetentionHours())));
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> lastModified(file).compareTo(fileCutoff) < 0).forEach(EarningsReportJobService::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Could not clean up earnings reports in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private Job submit(ReportKey key) {
+        Job job = jobsByKey.compute(key, (k, existing) ->
+                existing != null && existing.isReusable() ? existing : new Job(k, reportFile(k)));
+        if (!job.claim()) {
+            return job;
+        }
+
+        jobs.put(job.id, job);
+        if (Files.isReadable(job.file)) {
+            // Rendered before a restart
+            job.complete();
+            return job;
+        }
+        try {
+            workers.execute(() -> render(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            jobsByKey.remove(key, job);
+            throw new ServiceOverloadedException("Too many earnings reports in progress", properties.getRetryAfterSeconds());
+        }
+        return job;
+    }
+
+    private void render(Job job) {
+        job.status = ReportJobDTO.Status.RUNNING;
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, job.key.educatorId().toString(), ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                readOnlyTemplate.executeWithoutResult(status -> {
+                    User educator = userRepository.findById(job.key.educatorId())
+                            .orElseThrow(() -> new ResourceNotFoundException("User", "id", job.key.educatorId()));
+                    earningsReportService.writeEarningsReport(educator, out);
+                });
+            }
+            Files.move(temp, job.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            deleteOlderReports(job);
+            job.complete();
+            log.info("Rendered earnings report for educator {}", job.key.educatorId());
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to render earnings report for educator {}", job.key.educatorId(), e);
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+            job.fail(e);
+        }
+    }
+
+    private Job findJob(UUID jobId, String educatorEmail) {
+        User educator = userRepository.findByEmail(educatorEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "email", educatorEmail));
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            job = resolve(educator.getId(), jobId);
+        }
+        if (job == null || !job.key.educatorId().equals(educator.getId())) {
+            throw new ResourceNotFoundException("ReportJob", "id", jobId);
+        }
+        return job;
+    }
+
+    // A job submitted through another node or before a restart: either the educator's current
+    // report, joined or rendered here, or an older one still on disk
+    private Job resolve(UUID educatorId, UUID jobId) {
+        ReportKey current = currentKey(educatorId);
+        if (jobId(reportFile(current)).equals(jobId)) {
+            return submit(current);
+        }
+        String prefix = educatorId + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix))
+                    .filter(file -> jobId(file).equals(jobId))
+                    .map(file -> REPORT_FILE.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .filter(name -> Integer.parseInt(name.group(2)) == EarningsReportService.LAYOUT_VERSION)
+                    .map(name -> new ReportKey(educatorId, LocalDate.parse(name.group(3)), Long.parseLong(name.group(4))))
+                    .findFirst()
+                    .map(this::adopt)
+                    .orElse(null);
+        } catch (IOException e) {
+            log.warn("Could not look up earnings report job {} in {}: {}", jobId, directory, e.getMessage());
+            return null;
+        }
+    }
+
+    // A report already on disk becomes a completed job; it is never rendered again under its old key
+    private Job adopt(ReportKey key) {
+        Job job = jobsByKey.computeIfAbsent(key, k -> new Job(k, reportFile(k)));
+        if (job.claim()) {
+            jobs.put(job.id, job);
+            job.complete();
+        }
+        return job;
+    }
+
+    private ReportKey currentKey(UUID educatorId) {
+        return new ReportKey(educatorId, LocalDate.now(ZoneOffset.UTC), earningsVersion(educatorId));
+    }
+
+    private long earningsVersion(UUID educatorId) {
+        return earningsRepository.findLastChange(educatorId)
+                .map(lastChange -> ChronoUnit.MICROS.between(Instant.EPOCH, lastChange))
+                .orElse(0L);
+    }
+
+    private Path reportFile(ReportKey key) {
+        return directory.resolve(key.educatorId() + "-v" + EarningsReportService.LAYOUT_VERSION
+                + "-" + key.day() + "-" + key.earningsVersion() + ".pdf");
+    }
+
+    private void deleteOlderReports(Job job) throws IOException {
+        String prefix = job.key.educatorId() + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().startsWith(prefix))
+                    .filter(file -> file.getFileName().toString().endsWith(".pdf"))
+                    .filter(file -> !file.equals(job.file))
+                    .forEach(EarningsReportJobService::deleteQuietly);
+        }
+    }
+
+    // Once open, the report stays readable even if a newer version deletes the file
+    private static Report open(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            return new Report(channel, channel.size());
+        } catch (IOException e) {
+            throw new ResourceNotFoundException("Report", "file", file.getFileName());
+        }
+    }
+
+    private static UUID jobId(Path file) {
+        return UUID.nameUUIDFromBytes(file.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete earnings report {}: {}", file, e.getMessage());
+        }
+    }
+
+    private record ReportKey(UUID educatorId, LocalDate day, long earningsVersion) {
+    }
+
+    /**
+     * An opened report file.
+     */
+    public record Report(FileChannel channel, long size) implements AutoCloseable {
+
+        public void writeTo(OutputStream out) throws IOException {
+            try (channel) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = 0;
+                while (position < size) {
+                    long transferred = channel.transferTo(position, size - position, target);
+                    if (transferred <= 0) {
+                        throw new EOFException("Earnings report ended early");
+                    }
+                    position += transferred;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Could not close earnings report: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static final class Job {
+
+        private final UUID id;
+        private final ReportKey key;
+        private final Path file;
+        private final Instant createdAt = Instant.now();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<Path> done = new CompletableFuture<>();
+        private volatile ReportJobDTO.Status status = ReportJobDTO.Status.QUEUED;
+        private volatile Instant completedAt;
+        private volatile String error;
+
+        Job(ReportKey key, Path file) {
+            this.id = jobId(file);
+            this.key = key;
+            this.file = file;
+        }
+
+        /**
+         * True for exactly one caller, the one that has to start the job.
+         */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        boolean isReusable() {
+            return switch (status) {
+                case QUEUED, RUNNING -> true;
+                case COMPLETED -> Files.isReadable(file);
+                case FAILED -> false;
+            };
+        }
+
+        void complete() {
+            completedAt = Instant.now();
+            status = ReportJobDTO.Status.COMPLETED;
+            done.complete(file);
+        }
+
+        void fail(Exception cause) {
+            completedAt = Instant.now();
+            error = "Failed to generate PDF report";
+            status = ReportJobDTO.Status.FAILED;
+            done.completeExceptionally(cause);
+        }
+
+        ReportJobDTO toDto() {
+            return ReportJobDTO.builder()
+                    .id(id)
+                    .status(status)
+                    .createdAt(createdAt)
+                    .completedAt(completedAt)
+                    .downloadUrl(status == ReportJobDTO.Status.COMPLETED
+                            ? "/v1/educator/earnings/report/jobs/" + id + "/pdf" : null)
+                    .error(error)
+                    .build();
+        }
+    }
+}
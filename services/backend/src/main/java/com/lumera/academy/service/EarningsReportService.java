@@ -2,19 +2,20 @@ package com.lumera.academy.service;
 
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.*;
+import com.lumera.academy.dto.EarningsSummaryDTO;
 import com.lumera.academy.entity.Enrollment;
 import com.lumera.academy.entity.User;
 import com.lumera.academy.exception.ResourceNotFoundException;
-import com.lumera.academy.repository.EnrollmentRepository;
+import com.lumera.academy.repository.EducatorEarningsRepository;
+import com.lumera.academy.repository.EducatorEarningsRepository.LedgerRow;
 import com.lumera.academy.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.awt.Color;
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -25,8 +26,9 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class EarningsReportService {
 
-    private final EnrollmentRepository enrollmentRepository;
     private final UserRepository userRepository;
+    private final EducatorEarningsService educatorEarningsService;
+    private final EducatorEarningsRepository earningsRepository;
 
     // Premium color palette matching the UI
     private static final Color CHAMPAGNE = new Color(201, 169, 98);
@@ -41,14 +43,40 @@ public class EarningsReportService {
     private static final Color SUCCESS_BG = new Color(240, 253, 244);
     private static final Color PENDING_YELLOW = new Color(202, 138, 4);
     private static final Color PENDING_BG = new Color(254, 252, 232);
+    private static final Color FAILED_RED = new Color(220, 38, 38);
+
+    private static final Font CELL_FONT = new Font(Font.HELVETICA, 9, Font.NORMAL, CHARCOAL);
+    private static final Font CELL_LIGHT_FONT = new Font(Font.HELVETICA, 9, Font.NORMAL, TEXT_SECONDARY);
+    private static final Font NET_FONT = new Font(Font.HELVETICA, 9, Font.BOLD, CHAMPAGNE);
+    private static final DateTimeFormatter DATE_FORMATTER =
+            DateTimeFormatter.ofPattern("MMM d, yyyy").withZone(ZoneId.systemDefault());
+
+    private static final int ROWS_PER_CHUNK = 50;
+    private static final int RECENT_TRANSACTIONS = 50;
+
+    /**
+     * Part of the cached report file names; bump whenever the layout changes.
+     */
+    public static final int LAYOUT_VERSION = 3;
 
     public byte[] generateEarningsReport(String educatorEmail) {
         User educator = userRepository.findByEmail(educatorEmail)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "email", educatorEmail));
 
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeEarningsReport(educator, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Write the report for an educator to {@code out}, which is left open.
+     */
+    public void writeEarningsReport(User educator, OutputStream out) {
+        try {
             Document document = new Document(PageSize.A4, 40, 40, 40, 40);
-            PdfWriter writer = PdfWriter.getInstance(document, baos);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            // The caller owns the stream (e.g. the servlet response)
+            writer.setCloseStream(false);
 
             // Add page event for footer
             writer.setPageEvent(new PremiumPageEvent(educator.getFullName()));
@@ -65,8 +93,6 @@ public class EarningsReportService {
             addTransactionsSection(document, writer, educator.getId());
 
             document.close();
-
-            return baos.toByteArray();
         } catch (Exception e) {
             throw new RuntimeException("Failed to generate PDF report", e);
         }
@@ -153,15 +179,7 @@ public class EarningsReportService {
     }
 
     private void addStatsCards(Document document, PdfWriter writer, UUID educatorId) throws DocumentException {
-        BigDecimal totalEarnings = enrollmentRepository.calculateTotalEarnings(educatorId);
-        if (totalEarnings == null) totalEarnings = BigDecimal.ZERO;
-
-        Instant thirtyDaysAgo = Instant.now().minusSeconds(30L * 24 * 60 * 60);
-        BigDecimal monthlyEarnings = enrollmentRepository.calculateEarningsSince(educatorId, thirtyDaysAgo);
-        if (monthlyEarnings == null) monthlyEarnings = BigDecimal.ZERO;
-
-        // Calculate pending (assume 10% of monthly is pending for demo)
-        BigDecimal pendingPayout = monthlyEarnings.multiply(new BigDecimal("0.1")).setScale(2, RoundingMode.HALF_UP);
+        EarningsSummaryDTO summary = educatorEarningsService.getSummary(educatorId);
 
         // Section title
         Font sectionFont = new Font(Font.HELVETICA, 14, Font.BOLD, CHARCOAL);
@@ -175,13 +193,20 @@ public class EarningsReportService {
         cardsTable.setSpacingAfter(30);
 
         // Card 1: Total Earnings
-        addStatCard(cardsTable, "Total Earnings", formatCurrency(totalEarnings), "All time", CHAMPAGNE);
+        addStatCard(cardsTable, "Total Earnings", formatCurrency(summary.getTotalEarnings()), "All time", CHAMPAGNE);
 
-        // Card 2: This Month
-        addStatCard(cardsTable, "This Month", formatCurrency(monthlyEarnings), "+24% vs last month", SUCCESS_GREEN);
+        // Card 2: Current period against the one before
+        String period = summary.getPeriodDays() + " days";
+        BigDecimal change = summary.getChangePercent();
+        String changeText = change == null ? "No earnings in prior " + period
+                : String.format("%s%s%% vs prior %s", change.signum() >= 0 ? "+" : "", change.toPlainString(), period);
+        addStatCard(cardsTable, "Last " + period, formatCurrency(summary.getCurrentPeriodEarnings()), changeText,
+                change == null || change.signum() >= 0 ? SUCCESS_GREEN : FAILED_RED);
 
         // Card 3: Pending Payout
-        addStatCard(cardsTable, "Pending Payout", formatCurrency(pendingPayout), "Next: Nov 28, 2024", CHAMPAGNE);
+        String nextPayout = summary.getNextPayoutAt() == null ? "No payout scheduled"
+                : "Next: " + DATE_FORMATTER.format(summary.getNextPayoutAt());
+        addStatCard(cardsTable, "Pending Payout", formatCurrency(summary.getPendingPayout()), nextPayout, CHAMPAGNE);
 
         // Card 4: Platform Fee
         addStatCard(cardsTable, "Platform Fee", "20%", "You keep 80%", TEXT_MUTED);
@@ -224,19 +249,80 @@ public class EarningsReportService {
         sectionTitle.setSpacingAfter(15);
         document.add(sectionTitle);
 
-        // Get enrollments
-        List<Enrollment> enrollments = enrollmentRepository.findByEducatorId(educatorId,
-                org.springframework.data.domain.PageRequest.of(0, 50,
-                        org.springframework.data.domain.Sort.by(org.springframework.data.domain.Sort.Direction.DESC, "createdAt")))
-                .getContent();
+        // Latest transactions, flattened in the query so no association is loaded per row
+        List<LedgerRow> transactions = earningsRepository.findLedgerPage(educatorId, null, RECENT_TRANSACTIONS);
 
-        if (enrollments.isEmpty()) {
+        if (transactions.isEmpty()) {
             addEmptyState(document);
             return;
         }
 
-        // Premium table
+        // Premium table, written out in chunks so finished rows can leave memory
+        PdfPTable table = newTransactionsTable();
+        int rows = 0;
+
+        for (LedgerRow row : transactions) {
+            addTransactionRow(table, row);
+
+            if (++rows % ROWS_PER_CHUNK == 0) {
+                document.add(table);
+            }
+        }
+
+        table.setComplete(true);
+        document.add(table);
+    }
+
+    /**
+     * Write every transaction of an educator to {@code out}, which is left open. Enrollments
+     * are read in keyset pages and each page is added to the document before the next is
+     * fetched, so memory does not grow with the size of the history.
+     */
+    public void writeLedger(User educator, OutputStream out, int pageSize) {
+        try {
+            Document document = new Document(PageSize.A4, 40, 40, 40, 40);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
+            writer.setPageEvent(new PremiumPageEvent(educator.getFullName()));
+
+            document.open();
+            addPremiumHeader(document, writer, educator);
+
+            Font sectionFont = new Font(Font.HELVETICA, 14, Font.BOLD, CHARCOAL);
+            Paragraph sectionTitle = new Paragraph("All Transactions", sectionFont);
+            sectionTitle.setSpacingAfter(15);
+            document.add(sectionTitle);
+
+            PdfPTable table = newTransactionsTable();
+            LedgerRow last = null;
+            List<LedgerRow> page;
+            do {
+                page = earningsRepository.findLedgerPage(educator.getId(), last, pageSize);
+                for (LedgerRow row : page) {
+                    addTransactionRow(table, row);
+                    last = row;
+                }
+                if (!page.isEmpty()) {
+                    document.add(table);
+                }
+            } while (page.size() == pageSize);
+
+            if (last == null) {
+                addEmptyState(document);
+            } else {
+                table.setComplete(true);
+                document.add(table);
+            }
+            document.close();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to generate PDF ledger", e);
+        }
+    }
+
+    // Header row only; call setComplete(true) and add it once more after the last row
+    private PdfPTable newTransactionsTable() throws DocumentException {
         PdfPTable table = new PdfPTable(6);
+        table.setComplete(false);
         table.setWidthPercentage(100);
         table.setWidths(new float[]{1.8f, 2.8f, 2f, 1.3f, 1.3f, 1.2f});
 
@@ -258,41 +344,33 @@ public class EarningsReportService {
             }
             table.addCell(cell);
         }
+        return table;
+    }
 
-        // Table rows
-        Font cellFont = new Font(Font.HELVETICA, 9, Font.NORMAL, CHARCOAL);
-        Font cellLightFont = new Font(Font.HELVETICA, 9, Font.NORMAL, TEXT_SECONDARY);
-        Font netFont = new Font(Font.HELVETICA, 9, Font.BOLD, CHAMPAGNE);
-        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM d, yyyy").withZone(ZoneId.systemDefault());
-
-        for (Enrollment enrollment : enrollments) {
-            // Date
-            addTableCell(table, enrollment.getCreatedAt() != null ?
-                    dateFormatter.format(enrollment.getCreatedAt()) : "-", cellLightFont, Element.ALIGN_LEFT);
-
-            // Class name
-            addTableCell(table, truncate(enrollment.getLiveClass().getTitle(), 35), cellFont, Element.ALIGN_LEFT);
-
-            // Student
-            addTableCell(table, truncate(enrollment.getStudent().getFullName(), 25), cellLightFont, Element.ALIGN_LEFT);
-
-            // Amount
-            addTableCell(table, formatCurrency(enrollment.getAmountPaid()), cellFont, Element.ALIGN_RIGHT);
-
-            // Net (educator earnings) - highlighted
-            PdfPCell netCell = new PdfPCell(new Phrase(formatCurrency(enrollment.getEducatorEarning()), netFont));
-            netCell.setBorderColor(CARD_BORDER);
-            netCell.setBorderWidth(1);
-            netCell.setPadding(12);
-            netCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-            netCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-            table.addCell(netCell);
-
-            // Status badge
-            addStatusBadge(table, "completed");
-        }
+    private void addTransactionRow(PdfPTable table, LedgerRow row) {
+        // Date
+        addTableCell(table, DATE_FORMATTER.format(row.createdAt()), CELL_LIGHT_FONT, Element.ALIGN_LEFT);
 
-        document.add(table);
+        // Class name
+        addTableCell(table, truncate(row.classTitle(), 35), CELL_FONT, Element.ALIGN_LEFT);
+
+        // Student
+        addTableCell(table, truncate(row.studentName(), 25), CELL_LIGHT_FONT, Element.ALIGN_LEFT);
+
+        // Amount
+        addTableCell(table, formatCurrency(row.amountPaid()), CELL_FONT, Element.ALIGN_RIGHT);
+
+        // Net (educator earnings) - highlighted
+        PdfPCell netCell = new PdfPCell(new Phrase(formatCurrency(row.educatorEarning()), NET_FONT));
+        netCell.setBorderColor(CARD_BORDER);
+        netCell.setBorderWidth(1);
+        netCell.setPadding(12);
+        netCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        netCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
+        table.addCell(netCell);
+
+        // Status badge
+        addStatusBadge(table, row.paymentStatus());
     }
 
     private void addTableCell(PdfPTable table, String text, Font font, int alignment) {
@@ -305,7 +383,7 @@ public class EarningsReportService {
         table.addCell(cell);
     }
 
-    private void addStatusBadge(PdfPTable table, String status) {
+    private void addStatusBadge(PdfPTable table, Enrollment.PaymentStatus status) {
         PdfPCell cell = new PdfPCell();
         cell.setBorderColor(CARD_BORDER);
         cell.setBorderWidth(1);
@@ -314,14 +392,15 @@ public class EarningsReportService {
         cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
 
         // Create badge-like text
-        Font badgeFont;
-        if ("completed".equalsIgnoreCase(status)) {
-            badgeFont = new Font(Font.HELVETICA, 8, Font.BOLD, SUCCESS_GREEN);
-        } else {
-            badgeFont = new Font(Font.HELVETICA, 8, Font.BOLD, PENDING_YELLOW);
-        }
-
-        Phrase badge = new Phrase(status.toUpperCase(), badgeFont);
+        Color badgeColor = switch (status) {
+            case COMPLETED -> SUCCESS_GREEN;
+            case PENDING -> PENDING_YELLOW;
+            case FAILED -> FAILED_RED;
+            case REFUNDED, PARTIALLY_REFUNDED -> TEXT_MUTED;
+        };
+        String label = status == Enrollment.PaymentStatus.PARTIALLY_REFUNDED ? "PART. REFUND" : status.name();
+
+        Phrase badge = new Phrase(label, new Font(Font.HELVETICA, 8, Font.BOLD, badgeColor));
         cell.setPhrase(badge);
         table.addCell(cell);
     }
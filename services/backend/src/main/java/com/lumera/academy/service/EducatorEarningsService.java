@@ -0,0 +1,319 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.config.EducatorEarningsProperties;
+import com.lumera.academy.config.PayoutProperties;
+import com.lumera.academy.dto.EarningsSeriesDTO;
+import com.lumera.academy.dto.EarningsSeriesDTO.Granularity;
+import com.lumera.academy.dto.EarningsSummaryDTO;
+import com.lumera.academy.entity.Enrollment;
+import com.lumera.academy.entity.User;
+import com.lumera.academy.event.EarningsChangedEvent;
+import com.lumera.academy.exception.BadRequestException;
+import com.lumera.academy.exception.ResourceNotFoundException;
+import com.lumera.academy.repository.EducatorEarningsRepository;
+import com.lumera.academy.repository.EducatorEarningsRepository.DailyDrift;
+import com.lumera.academy.repository.EducatorEarningsRepository.EarningsTotals;
+import com.lumera.academy.repository.EducatorEarningsRepository.SeriesPoint;
+import com.lumera.academy.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Educator earnings read from the educator_earnings_daily rollup, so every total is a sum over
+ * days. A nightly rebuild recounts enrollments and corrects any drift in the rollup.
+ *
+ * Dashboard summaries and chart series are each computed in one aggregate query and kept in
+ * memory per educator until their earnings or payouts change, the UTC day rolls over or a
+ * short TTL runs out.
+ */
+@Service
+@Slf4j
+public class EducatorEarningsService {
+
+    private final EducatorEarningsRepository earningsRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final MeterRegistry meterRegistry;
+    private final EducatorEarningsProperties properties;
+    private final PayoutProperties payoutProperties;
+
+    // Longest series served, so one request cannot build an unbounded response
+    private static final int MAX_SERIES_BUCKETS = 1000;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<CacheKey, Cached> cache = new LinkedHashMap<>(256, 0.75f, true);
+    // Bumped on every eviction, so a value loaded across an eviction is not cached
+    private final AtomicLong evictions = new AtomicLong();
+
+    public EducatorEarningsService(EducatorEarningsRepository earningsRepository,
+                                   UserRepository userRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   EducatorEarningsProperties properties,
+                                   PayoutProperties payoutProperties) {
+        this.earningsRepository = earningsRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Stored and recounted values must come from the same snapshot for the difference to be meaningful
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+        this.payoutProperties = payoutProperties;
+    }
+
+    /**
+     * All-time earnings from completed payments
+     */
+    public BigDecimal getTotalEarnings(UUID educatorId) {
+        return getEarnings(educatorId, null, null);
+    }
+
+    /**
+     * Earnings from completed payments over the UTC days [from, to); either bound may be null
+     */
+    public BigDecimal getEarnings(UUID educatorId, LocalDate from, LocalDate to) {
+        return earningsRepository.sumEarnings(educatorId, Enrollment.PaymentStatus.COMPLETED, from, to);
+    }
+
+    /**
+     * Earnings from completed payments over the last {@code days} UTC days, today included
+     */
+    public BigDecimal getRecentEarnings(UUID educatorId, int days) {
+        return getEarnings(educatorId, LocalDate.now(ZoneOffset.UTC).minusDays(days - 1L), null);
+    }
+
+    public EarningsSummaryDTO getSummary(String educatorEmail) {
+        User educator = userRepository.findByEmail(educatorEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "email", educatorEmail));
+        return getSummary(educator.getId());
+    }
+
+    /**
+     * Current against previous period earnings, pending amounts and the next payout date
+     */
+    public EarningsSummaryDTO getSummary(UUID educatorId) {
+        Summary summary = cached(new SummaryKey(educatorId), today -> loadSummary(educatorId, today));
+        return summary.toDto();
+    }
+
+    /**
+     * Completed earnings per day, week (starting Monday) or month over the UTC days [from, to],
+     * with a zero bucket for every period without earnings. Defaults to the last 30 days, 12
+     * weeks or 12 months.
+     */
+    public EarningsSeriesDTO getSeries(String educatorEmail, String granularity, LocalDate from, LocalDate to) {
+        User educator = userRepository.findByEmail(educatorEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "email", educatorEmail));
+
+        Granularity unit = parseGranularity(granularity);
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = bucketStart(unit, from != null ? from : switch (unit) {
+            case DAY -> end.minusDays(29);
+            case WEEK -> end.minusWeeks(11);
+            case MONTH -> end.minusMonths(11);
+        });
+        if (start.isAfter(end)) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
+        long buckets = switch (unit) {
+            case DAY -> ChronoUnit.DAYS.between(start, end);
+            case WEEK -> ChronoUnit.WEEKS.between(start, end);
+            case MONTH -> ChronoUnit.MONTHS.between(start, end);
+        } + 1;
+        if (buckets > MAX_SERIES_BUCKETS) {
+            throw new BadRequestException("Range spans " + buckets + " buckets, at most "
+                    + MAX_SERIES_BUCKETS + " are allowed");
+        }
+
+        UUID educatorId = educator.getId();
+        List<SeriesPoint> points = cached(new SeriesKey(educatorId, unit, start, end), today ->
+                List.copyOf(earningsRepository.findSeries(educatorId, unit.name().toLowerCase(Locale.ROOT), start, end)));
+
+        return EarningsSeriesDTO.builder()
+                .granularity(unit)
+                .from(start)
+                .to(end)
+                .buckets(points.stream()
+                        .map(point -> EarningsSeriesDTO.Bucket.builder()
+                                .start(point.bucket())
+                                .enrollments(point.enrollments())
+                                .grossAmount(point.amountPaid())
+                                .earnings(point.educatorEarning())
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEarningsChanged(EarningsChangedEvent event) {
+        synchronized (cache) {
+            evictions.incrementAndGet();
+            cache.keySet().removeIf(key -> key.educatorId().equals(event.educatorId()));
+        }
+    }
+
+    /**
+     * Next time the payout cron fires.
+     */
+    public Instant nextPayoutAt() {
+        ZoneId zone = ZoneId.of(payoutProperties.getZone());
+        ZonedDateTime next = CronExpression.parse(payoutProperties.getCron()).next(ZonedDateTime.now(zone));
+        return next != null ? next.toInstant() : null;
+    }
+
+    // Values must be immutable, they are handed to every caller
+    @SuppressWarnings("unchecked")
+    private <T> T cached(CacheKey key, Function<LocalDate, T> loader) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            Cached cached = cache.get(key);
+            if (cached != null && cached.day().equals(today) && cached.expiresAt() > now) {
+                return (T) cached.value();
+            }
+        }
+
+        long evictionsBefore = evictions.get();
+        T value = loader.apply(today);
+        synchronized (cache) {
+            if (evictions.get() == evictionsBefore) {
+                cache.put(key, new Cached(value, today, now + properties.getCacheTtlSeconds() * 1000));
+                Iterator<CacheKey> eldest = cache.keySet().iterator();
+                while (cache.size() > properties.getCacheMaxEntries() && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        return value;
+    }
+
+    private static Granularity parseGranularity(String granularity) {
+        try {
+            return Granularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Granularity must be day, week or month");
+        }
+    }
+
+    private static LocalDate bucketStart(Granularity unit, LocalDate day) {
+        return switch (unit) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    private Summary loadSummary(UUID educatorId, LocalDate today) {
+        int periodDays = properties.getPeriodDays();
+        LocalDate currentFrom = today.minusDays(periodDays - 1L);
+        EarningsTotals totals = earningsRepository.summarize(educatorId, currentFrom, currentFrom.minusDays(periodDays));
+
+        BigDecimal changePercent = totals.previousPeriod().signum() == 0 ? null
+                : totals.currentPeriod().subtract(totals.previousPeriod())
+                        .multiply(BigDecimal.valueOf(100))
+                        .divide(totals.previousPeriod(), 1, RoundingMode.HALF_UP);
+        // Refunds after a payout can push paid out above earned
+        BigDecimal pendingPayout = totals.total().subtract(totals.paidOut()).max(BigDecimal.ZERO);
+
+        return new Summary(totals.total(), periodDays, totals.currentPeriod(), totals.previousPeriod(),
+                changePercent, totals.awaitingPayment(), pendingPayout, nextPayoutAt());
+    }
+
+    @Scheduled(cron = "${app.educator-earnings.rebuild-cron:0 45 3 * * *}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Recount enrollments per educator, day and payment status and correct the rollup.
+     *
+     * @return the number of rollup rows corrected
+     */
+    public int rebuild() {
+        List<DailyDrift> drift = snapshotTemplate.execute(status -> earningsRepository.findDrift());
+        if (drift == null || drift.isEmpty()) {
+            log.info("Educator earnings rollup rebuild found no drift");
+            return 0;
+        }
+
+        for (DailyDrift row : drift) {
+            log.warn("Educator earnings drift for {} on {} ({}): {} enrollments, {} earnings",
+                    row.educatorId(), row.day(), row.paymentStatus(), row.enrollments(), row.educatorEarning());
+        }
+        transactionTemplate.executeWithoutResult(status -> earningsRepository.addCorrections(drift));
+        synchronized (cache) {
+            evictions.incrementAndGet();
+            cache.clear();
+        }
+
+        meterRegistry.counter("educator.earnings.drift").increment(drift.size());
+        log.warn("Educator earnings rollup rebuild corrected {} rows", drift.size());
+        return drift.size();
+    }
+
+    private interface CacheKey {
+        UUID educatorId();
+    }
+
+    private record SummaryKey(UUID educatorId) implements CacheKey {
+    }
+
+    private record SeriesKey(UUID educatorId, Granularity granularity, LocalDate from, LocalDate to) implements CacheKey {
+    }
+
+    private record Cached(Object value, LocalDate day, long expiresAt) {
+    }
+
+    private record Summary(
+            BigDecimal totalEarnings,
+            int periodDays,
+            BigDecimal currentPeriodEarnings,
+            BigDecimal previousPeriodEarnings,
+            BigDecimal changePercent,
+            BigDecimal awaitingPayment,
+            BigDecimal pendingPayout,
+            Instant nextPayoutAt
+    ) {
+        EarningsSummaryDTO toDto() {
+            return EarningsSummaryDTO.builder()
+                    .totalEarnings(totalEarnings)
+                    .periodDays(periodDays)
+                    .currentPeriodEarnings(currentPeriodEarnings)
+                    .previousPeriodEarnings(previousPeriodEarnings)
+                    .changePercent(changePercent)
+                    .awaitingPayment(awaitingPayment)
+                    .pendingPayout(pendingPayout)
+                    .nextPayoutAt(nextPayoutAt)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.entity.EducatorStats;
+import com.lumera.academy.repository.EducatorStatsRepository;
+import com.lumera.academy.repository.EducatorStatsRepository.StatsDrift;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Educator dashboard counters. Reads sum the educator's counter shards; a nightly
+ * reconciliation recounts the source tables and corrects any drift.
+ */
+@Service
+@Slf4j
+public class EducatorStatsService {
+
+    private final EducatorStatsRepository educatorStatsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public EducatorStatsService(EducatorStatsRepository educatorStatsRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry) {
+        this.educatorStatsRepository = educatorStatsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Stored and recounted values must come from the same snapshot for the difference to be meaningful
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Get the dashboard counters for an educator
+     */
+    public EducatorStats getStats(UUID educatorId) {
+        return educatorStatsRepository.findById(educatorId)
+                .orElseGet(() -> EducatorStats.builder()
+                        .educatorId(educatorId)
+                        .updatedAt(Instant.now())
+                        .build());
+    }
+
+    @Scheduled(cron = "${app.educator-stats.reconcile-cron:0 30 3 * * *}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * Recount completions and certificates per educator and correct the stored counters.
+     */
+    public DriftReport reconcile() {
+        List<StatsDrift> drift = snapshotTemplate.execute(status -> educatorStatsRepository.findDrift());
+        if (drift == null || drift.isEmpty()) {
+            log.info("Educator stats reconciliation found no drift");
+            return new DriftReport(0, 0, 0);
+        }
+
+        long completionDrift = 0;
+        long certificateDrift = 0;
+        for (StatsDrift row : drift) {
+            log.warn("Educator stats drift for {}: completions {} -> {}, certificates {} -> {}",
+                    row.getEducatorId(),
+                    row.getStoredCompletions(), row.getActualCompletions(),
+                    row.getStoredCertificates(), row.getActualCertificates());
+            completionDrift += Math.abs(row.getActualCompletions() - row.getStoredCompletions());
+            certificateDrift += Math.abs(row.getActualCertificates() - row.getStoredCertificates());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> drift.forEach(row ->
+                educatorStatsRepository.addCounts(row.getEducatorId(),
+                        row.getActualCompletions() - row.getStoredCompletions(),
+                        row.getActualCertificates() - row.getStoredCertificates())));
+
+        meterRegistry.counter("educator.stats.drift", "counter", "completions").increment(completionDrift);
+        meterRegistry.counter("educator.stats.drift", "counter", "certificates").increment(certificateDrift);
+
+        DriftReport report = new DriftReport(drift.size(), completionDrift, certificateDrift);
+        log.warn("Educator stats reconciliation corrected {}", report);
+        return report;
+    }
+
+    public record DriftReport(int educatorsDrifted, long completionDrift, long certificateDrift) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.config.WatchProgressProperties;
+import com.lumera.academy.dto.UpdateWatchProgressRequest;
+import com.lumera.academy.dto.WatchProgressDTO;
+import com.lumera.academy.entity.WatchCoverage;
+import com.lumera.academy.entity.WatchProgress;
+import com.lumera.academy.repository.WatchProgressBatchRepository.ProgressKey;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decides how often players should report and which heartbeats are worth a write.
+ *
+ * The suggested interval grows with connection pool pressure (and the configured fleet-wide
+ * stretch factor) but never beyond the playback still needed to reach the completion threshold,
+ * so completion is detected as promptly as before. Heartbeats that barely moved since the last
+ * persisted one are acknowledged from memory; the next persisted report still credits the
+ * skipped playback because it stays within the continuous-playback gap.
+ */
+@Component
+@RequiredArgsConstructor
+public class HeartbeatPolicy {
+
+    private static final Duration IDLE_EVICTION = Duration.ofMinutes(10);
+
+    private final WatchProgressProperties properties;
+    private final DatabasePoolMonitor poolMonitor;
+
+    private final ConcurrentMap<ProgressKey, Persisted> lastPersisted = new ConcurrentHashMap<>();
+
+    /**
+     * Seconds the player should wait before its next heartbeat.
+     */
+    public int nextReportAfterSeconds(WatchProgressDTO progress) {
+        WatchProgressProperties.Cadence cadence = properties.getCadence();
+        int maxInterval = Math.min(cadence.getMaxIntervalSeconds(), WatchCoverage.MAX_CONTIGUOUS_GAP_SECONDS);
+        double interval = cadence.getBaseIntervalSeconds() * pressureStretch(cadence) * cadence.getStretchFactor();
+        int seconds = (int) Math.min(Math.round(interval), maxInterval);
+
+        if (!progress.isCompleted()) {
+            seconds = Math.min(seconds, Math.max(secondsToThreshold(progress), cadence.getMinIntervalSeconds()));
+        }
+        return Math.max(seconds, cadence.getMinIntervalSeconds());
+    }
+
+    /**
+     * Acknowledge a heartbeat without persisting it when it is within the negligible delta of the
+     * last persisted one and cannot complete the class.
+     */
+    public Optional<WatchProgressDTO> absorb(UUID userId, UpdateWatchProgressRequest request) {
+        Persisted previous = lastPersisted.get(new ProgressKey(userId, request.getLiveClassId()));
+        if (previous == null) {
+            return Optional.empty();
+        }
+        WatchProgressDTO progress = previous.progress();
+        int minDelta = properties.getCadence().getMinPersistDeltaSeconds();
+        boolean negligible = Math.abs(request.getCurrentPosition() - progress.getLastPosition()) < minDelta
+                && request.getTotalDuration().equals(progress.getTotalDurationSeconds())
+                && (progress.isCompleted() || secondsToThreshold(progress) > minDelta);
+        if (!negligible) {
+            return Optional.empty();
+        }
+        return Optional.of(progress.toBuilder()
+                .lastPosition(request.getCurrentPosition())
+                .build());
+    }
+
+    /**
+     * Record the state a heartbeat was persisted with. A copy is kept, since the caller goes on
+     * to fill in and return the DTO it passed.
+     */
+    public void remember(UUID userId, WatchProgressDTO progress) {
+        lastPersisted.put(new ProgressKey(userId, progress.getLiveClassId()),
+                new Persisted(progress.toBuilder().build(), Instant.now()));
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        Instant cutoff = Instant.now().minus(IDLE_EVICTION);
+        lastPersisted.values().removeIf(entry -> entry.persistedAt().isBefore(cutoff));
+    }
+
+    private double pressureStretch(WatchProgressProperties.Cadence cadence) {
+        double pressure = poolMonitor.pressure();
+        double maxStretch = (double) cadence.getMaxIntervalSeconds() / cadence.getBaseIntervalSeconds();
+        if (pressure <= cadence.getPressureLow()) {
+            return 1.0;
+        }
+        if (pressure >= cadence.getPressureHigh()) {
+            return maxStretch;
+        }
+        double ratio = (pressure - cadence.getPressureLow()) / (cadence.getPressureHigh() - cadence.getPressureLow());
+        return 1.0 + ratio * (maxStretch - 1.0);
+    }
+
+    /**
+     * Playback still needed to reach the completion threshold, in seconds.
+     */
+    private static int secondsToThreshold(WatchProgressDTO progress) {
+        if (progress.getTotalDurationSeconds() == null || progress.getWatchPercentage() == null) {
+            return 0;
+        }
+        double missing = WatchProgress.COMPLETION_THRESHOLD - progress.getWatchPercentage();
+        return (int) Math.max(0, Math.ceil(missing / 100 * progress.getTotalDurationSeconds()));
+    }
+
+    private record Persisted(WatchProgressDTO progress, Instant persistedAt) {
+    }
+}
@@ -6,6 +6,7 @@ import com.lumera.academy.dto.LiveClassFilter;
 import com.lumera.academy.entity.Category;
 import com.lumera.academy.entity.LiveClass;
 import com.lumera.academy.entity.User;
+import com.lumera.academy.event.ClassEndedEvent;
 import com.lumera.academy.exception.BadRequestException;
 import com.lumera.academy.exception.ResourceNotFoundException;
 import com.lumera.academy.repository.CategoryRepository;
@@ -13,6 +14,7 @@ import com.lumera.academy.repository.LiveClassRepository;
 import com.lumera.academy.repository.LiveClassSpecification;
 import com.lumera.academy.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -30,6 +32,7 @@ public class LiveClassService {
     private final LiveClassRepository liveClassRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<LiveClassDTO> getUpcomingClasses(Pageable pageable) {
         return liveClassRepository.findUpcomingClasses(Instant.now(), pageable)
@@ -264,7 +267,8 @@ public class LiveClassService {
         liveClass.setRecordingUrl(recordingUrl);
         liveClassRepository.save(liveClass);
 
-        // TODO: Issue certificates to attendees
+        // Certificates are issued in bulk once this transaction commits
+        eventPublisher.publishEvent(new ClassEndedEvent(classId));
     }
 
     // Email-based methods for Keycloak authentication
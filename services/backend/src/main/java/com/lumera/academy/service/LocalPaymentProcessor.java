@@ -0,0 +1,35 @@
+package com.lumera.academy.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Stand-in for a real payment provider that accepts every transfer without moving money. The
+ * reference is derived from the idempotency key, so a repeated transfer gets the same reference.
+ * Only registered under the dev and test profiles; any other deployment needs a real processor
+ * before payouts can be enabled.
+ */
+@Component
+@Profile({"dev", "test"})
+@Slf4j
+public class LocalPaymentProcessor implements PaymentProcessor {
+
+    @Override
+    public String method() {
+        return "LOCAL";
+    }
+
+    @Override
+    public PayoutResult pay(PayoutRequest request) {
+        if (request.amount().signum() <= 0) {
+            return PayoutResult.failed("Amount must be positive");
+        }
+        String reference = "local_" + UUID.nameUUIDFromBytes(request.idempotencyKey().getBytes(StandardCharsets.UTF_8));
+        log.debug("Paid {} to educator {} ({})", request.amount(), request.educatorId(), reference);
+        return PayoutResult.succeeded(reference);
+    }
+}
@@ -0,0 +1,36 @@
+package com.lumera.academy.service;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Sends money to educators. Implementations must treat the idempotency key as the identity of
+ * a transfer: sending the same key again returns the original result instead of paying twice.
+ */
+public interface PaymentProcessor {
+
+    /**
+     * Stored as the payout method of every payout this processor handles.
+     */
+    String method();
+
+    /**
+     * Pay out one transfer. Declined transfers are returned as failed; exceptions mean the
+     * outcome is unknown and the transfer may be sent again with the same key.
+     */
+    PayoutResult pay(PayoutRequest request);
+
+    record PayoutRequest(UUID payoutId, UUID educatorId, BigDecimal amount, String idempotencyKey) {
+    }
+
+    record PayoutResult(boolean succeeded, String reference, String failureReason) {
+
+        public static PayoutResult succeeded(String reference) {
+            return new PayoutResult(true, reference, null);
+        }
+
+        public static PayoutResult failed(String failureReason) {
+            return new PayoutResult(false, null, failureReason);
+        }
+    }
+}
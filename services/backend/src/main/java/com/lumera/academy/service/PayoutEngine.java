@@ -0,0 +1,282 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.config.PayoutProperties;
+import com.lumera.academy.event.EarningsChangedEvent;
+import com.lumera.academy.repository.PayoutRepository;
+import com.lumera.academy.repository.PayoutRepository.ClaimedPayout;
+import com.lumera.academy.repository.PayoutRepository.CreatedPayout;
+import com.lumera.academy.repository.PayoutRepository.PayoutOutcome;
+import com.lumera.academy.repository.PayoutRepository.PayoutRun;
+import com.lumera.academy.service.PaymentProcessor.PayoutRequest;
+import com.lumera.academy.service.PaymentProcessor.PayoutResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pays educators their completed, unpaid earnings on the payout schedule.
+ *
+ * A run first walks the educators in id order, creating one PENDING payout per educator and
+ * linking the enrollments it covers, one chunk per transaction. Each chunk moves the run's
+ * checkpoint, so a run interrupted by a crash resumes after the last committed chunk. The
+ * payouts are then claimed in batches, moved to PROCESSING and sent to the payment processor
+ * with their idempotency key, and end up COMPLETED or FAILED. A payout the processor errored
+ * on is retried with exponential backoff, picked up by a periodic check for due retries rather
+ * than the claim loop. The earnings of a failed payout are released for the next run. A lease on
+ * the run keeps other nodes from working on it at the same time.
+ */
+@Component
+@Slf4j
+public class PayoutEngine {
+
+    private final PayoutRepository payoutRepository;
+    private final PaymentProcessor paymentProcessor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final PayoutProperties properties;
+
+    private final UUID node = UUID.randomUUID();
+    private final ThreadPoolExecutor coordinator;
+    private final ExecutorService senders;
+
+    private final Timer runTimer;
+    private final Counter created;
+    private final Counter completed;
+    private final Counter failed;
+
+    public PayoutEngine(PayoutRepository payoutRepository,
+                        ObjectProvider<PaymentProcessor> paymentProcessor,
+                        ApplicationEventPublisher eventPublisher,
+                        TransactionTemplate transactionTemplate,
+                        PayoutProperties properties,
+                        MeterRegistry meterRegistry) {
+        this.payoutRepository = payoutRepository;
+        // Without a processor the engine stays idle; payouts cannot be enabled without one
+        this.paymentProcessor = paymentProcessor.getIfAvailable();
+        if (properties.isEnabled() && this.paymentProcessor == null) {
+            throw new IllegalStateException("app.payouts.enabled is set but no PaymentProcessor is configured");
+        }
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+
+        // One run at a time, off the shared scheduler thread; a trigger while one is queued is dropped
+        this.coordinator = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), new CustomizableThreadFactory("Payouts-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.senders = Executors.newFixedThreadPool(properties.getProcessorThreads(),
+                new CustomizableThreadFactory("PayoutSender-"));
+
+        this.runTimer = Timer.builder("payouts.run.duration")
+                .description("Time to create and send the payouts of a run")
+                .register(meterRegistry);
+        this.created = Counter.builder("payouts.created").register(meterRegistry);
+        this.completed = Counter.builder("payouts.completed").register(meterRegistry);
+        this.failed = Counter.builder("payouts.failed").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.payouts.cron:0 0 6 * * MON}", zone = "${app.payouts.zone:UTC}")
+    public void scheduledRun() {
+        if (properties.isEnabled()) {
+            // Recorded before submitting, so a trigger dropped behind a busy coordinator still
+            // leaves an unfinished run for the next retry check to resume
+            LocalDate runDate = LocalDate.now(ZoneId.of(properties.getZone()));
+            payoutRepository.startRun(runDate, Instant.now());
+            submit(this::resumeUnfinished);
+        }
+    }
+
+    /**
+     * Send payouts whose retry has come due; the run stays unfinished until they are settled.
+     */
+    @Scheduled(fixedDelayString = "${app.payouts.retry-interval-ms:60000}")
+    public void retryDue() {
+        if (properties.isEnabled()) {
+            submit(this::resumeUnfinished);
+        }
+    }
+
+    /**
+     * Finish runs a crash or shutdown left behind.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (properties.isEnabled()) {
+            submit(this::resumeUnfinished);
+        }
+    }
+
+    /**
+     * Create and send the payouts for a run date, or resume that run if it is unfinished.
+     * Runs on the calling thread.
+     */
+    public void run(LocalDate runDate) {
+        PayoutRun run = payoutRepository.startRun(runDate, Instant.now());
+        if (run.isRunning()) {
+            runTimer.record(() -> execute(run));
+        } else {
+            log.debug("Payout run for {} already completed", runDate);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // An interrupted run is resumed from its checkpoint on the next start
+        coordinator.shutdownNow();
+        senders.shutdownNow();
+        coordinator.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void submit(Runnable task) {
+        try {
+            coordinator.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.info("Payout run already in progress, unfinished runs are resumed on the next trigger");
+        }
+    }
+
+    private void resumeUnfinished() {
+        for (PayoutRun run : payoutRepository.findUnfinishedRuns()) {
+            log.info("Resuming payout run for {} after educator {}", run.runDate(), run.lastEducatorId());
+            runTimer.record(() -> execute(run));
+        }
+    }
+
+    private void execute(PayoutRun run) {
+        Duration lease = Duration.ofSeconds(properties.getLeaseSeconds());
+        if (!payoutRepository.claimRun(run.id(), node, lease)) {
+            log.info("Payout run for {} is held by another node", run.runDate());
+            return;
+        }
+        try {
+            if (createPayouts(run, lease) && sendPayouts(run, lease)) {
+                if (payoutRepository.finishRun(run.id(), node)) {
+                    log.info("Payout run for {} completed", run.runDate());
+                } else {
+                    log.info("Payout run for {} still has payouts in flight or awaiting retry", run.runDate());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Payout run for {} failed, it resumes from its checkpoint on the next trigger", run.runDate(), e);
+        }
+    }
+
+    // False when the lease was lost to another node
+    private boolean createPayouts(PayoutRun run, Duration lease) {
+        UUID checkpoint = run.lastEducatorId();
+        int chunkSize = properties.getChunkSize();
+        List<UUID> educators;
+        do {
+            educators = payoutRepository.findEducators(checkpoint, chunkSize);
+            if (educators.isEmpty()) {
+                break;
+            }
+            UUID last = educators.get(educators.size() - 1);
+            List<UUID> chunk = educators;
+            List<CreatedPayout> payouts = transactionTemplate.execute(status -> {
+                List<CreatedPayout> inserted = payoutRepository.createPayouts(run, chunk, properties.getMinimumAmount());
+                BigDecimal amount = inserted.stream().map(CreatedPayout::amount).reduce(BigDecimal.ZERO, BigDecimal::add);
+                if (!payoutRepository.advanceRun(run.id(), node, last, inserted.size(), amount, lease)) {
+                    status.setRollbackOnly();
+                    return null;
+                }
+                return inserted;
+            });
+            if (payouts == null) {
+                log.warn("Lost the lease on payout run for {}, stopping", run.runDate());
+                return false;
+            }
+            created.increment(payouts.size());
+            checkpoint = last;
+        } while (educators.size() == chunkSize && !Thread.currentThread().isInterrupted());
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    // False when the lease was lost to another node. Retries not yet due are left for retryDue.
+    private boolean sendPayouts(PayoutRun run, Duration lease) {
+        Duration staleAfter = Duration.ofMinutes(properties.getStaleProcessingMinutes());
+        Duration retryBackoff = Duration.ofSeconds(properties.getRetryBackoffSeconds());
+        List<ClaimedPayout> claimed;
+        do {
+            if (!payoutRepository.claimRun(run.id(), node, lease)) {
+                log.warn("Lost the lease on payout run for {}, stopping", run.runDate());
+                return false;
+            }
+            claimed = payoutRepository.claimPayouts(run.id(), staleAfter, properties.getClaimBatchSize());
+            if (claimed.isEmpty()) {
+                break;
+            }
+            List<PayoutOutcome> outcomes = send(claimed);
+            transactionTemplate.executeWithoutResult(status ->
+                    payoutRepository.recordOutcomes(paymentProcessor.method(), outcomes, retryBackoff));
+
+            for (PayoutOutcome outcome : outcomes) {
+                if (outcome.status() == PayoutOutcome.Status.RETRY) {
+                    continue;
+                }
+                (outcome.status() == PayoutOutcome.Status.COMPLETED ? completed : failed).increment();
+                eventPublisher.publishEvent(new EarningsChangedEvent(outcome.educatorId()));
+            }
+        } while (!Thread.currentThread().isInterrupted());
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    private List<PayoutOutcome> send(List<ClaimedPayout> claimed) {
+        List<Future<PayoutResult>> results = new ArrayList<>(claimed.size());
+        for (ClaimedPayout payout : claimed) {
+            PayoutRequest request = new PayoutRequest(payout.id(), payout.educatorId(), payout.amount(),
+                    payout.idempotencyKey());
+            results.add(senders.submit(() -> paymentProcessor.pay(request)));
+        }
+
+        List<PayoutOutcome> outcomes = new ArrayList<>(claimed.size());
+        for (int i = 0; i < claimed.size(); i++) {
+            ClaimedPayout payout = claimed.get(i);
+            try {
+                PayoutResult result = results.get(i).get();
+                outcomes.add(result.succeeded()
+                        ? new PayoutOutcome(payout.id(), payout.educatorId(), PayoutOutcome.Status.COMPLETED, result.reference(), null)
+                        : new PayoutOutcome(payout.id(), payout.educatorId(), PayoutOutcome.Status.FAILED, null, result.failureReason()));
+            } catch (ExecutionException e) {
+                // Outcome unknown; sending again with the same key cannot pay twice
+                String reason = String.valueOf(e.getCause().getMessage());
+                log.warn("Payout {} attempt {} failed: {}", payout.id(), payout.attempts(), reason);
+                PayoutOutcome.Status status = payout.attempts() >= properties.getMaxAttempts()
+                        ? PayoutOutcome.Status.FAILED : PayoutOutcome.Status.RETRY;
+                outcomes.add(new PayoutOutcome(payout.id(), payout.educatorId(), status, null, reason));
+            } catch (InterruptedException e) {
+                // Left PROCESSING; picked up again once stale
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return outcomes;
+    }
+}
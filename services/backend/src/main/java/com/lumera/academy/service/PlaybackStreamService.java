@@ -0,0 +1,159 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.config.WatchProgressProperties;
+import com.lumera.academy.dto.WatchProgressDTO;
+import com.lumera.academy.event.CertificateIssuedEvent;
+import com.lumera.academy.event.ClassCompletedEvent;
+import com.lumera.academy.exception.BadRequestException;
+import com.lumera.academy.exception.ResourceNotFoundException;
+import com.lumera.academy.exception.ServiceOverloadedException;
+import com.lumera.academy.repository.LiveClassRepository;
+import com.lumera.academy.repository.WatchProgressBatchRepository.ProgressKey;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived playback sessions: the player opens a server-sent event stream per class and keeps
+ * reporting positions through the regular progress endpoints, which browsers can do over any
+ * HTTP version while the stream stays open.
+ *
+ * The user is authenticated once when the session opens, so the session ends when the access
+ * token expires and the player reconnects with a fresh one. The class is checked up front and the
+ * open sessions are capped per user and per node. Events are raised on the node that handled the
+ * write, so a session only sees completions and certificates from its own node; the progress
+ * responses carry the completion as well.
+ *
+ * Events sent to the player:
+ * <ul>
+ *   <li>{@code resume} - stored progress when the session opens</li>
+ *   <li>{@code completed} - the class crossed the completion threshold</li>
+ *   <li>{@code certificate} - the certificate for the class has been issued</li>
+ * </ul>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PlaybackStreamService {
+
+    private static final long RETRY_AFTER_SECONDS = 30;
+
+    private final WatchProgressService watchProgressService;
+    private final WatchProgressProperties properties;
+    private final LiveClassRepository liveClassRepository;
+
+    private final ConcurrentMap<ProgressKey, Set<SseEmitter>> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UUID, Integer> sessionsPerUser = new ConcurrentHashMap<>();
+    private final AtomicInteger openSessions = new AtomicInteger();
+
+    /**
+     * Open a playback session for one class. It lasts until the player disconnects, the session
+     * times out or {@code tokenExpiresAt} passes.
+     */
+    public SseEmitter open(UUID userId, UUID liveClassId, Instant tokenExpiresAt) {
+        if (!liveClassRepository.existsById(liveClassId)) {
+            throw new ResourceNotFoundException("LiveClass", "id", liveClassId);
+        }
+        long timeoutMs = properties.getStream().getSessionTimeoutMs();
+        if (tokenExpiresAt != null) {
+            timeoutMs = Math.min(timeoutMs, Duration.between(Instant.now(), tokenExpiresAt).toMillis());
+            if (timeoutMs <= 0) {
+                throw new BadRequestException("Access token has expired");
+            }
+        }
+        acquire(userId);
+
+        ProgressKey key = new ProgressKey(userId, liveClassId);
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        sessions.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(emitter);
+        emitter.onCompletion(() -> unregister(key, emitter));
+        emitter.onTimeout(() -> {
+            unregister(key, emitter);
+            emitter.complete();
+        });
+        emitter.onError(e -> unregister(key, emitter));
+
+        WatchProgressDTO stored = watchProgressService.getProgress(userId, liveClassId);
+        send(emitter, "resume", stored != null ? stored : Map.of("liveClassId", liveClassId, "lastPosition", 0));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onClassCompleted(ClassCompletedEvent event) {
+        Set<SseEmitter> emitters = sessions.get(new ProgressKey(event.userId(), event.liveClassId()));
+        if (emitters != null) {
+            WatchProgressDTO progress = watchProgressService.getProgress(event.userId(), event.liveClassId());
+            emitters.forEach(emitter -> send(emitter, "completed",
+                    progress != null ? progress : Map.of("liveClassId", event.liveClassId())));
+        }
+    }
+
+    @EventListener
+    public void onCertificateIssued(CertificateIssuedEvent event) {
+        ProgressKey key = new ProgressKey(event.certificate().getUserId(), event.certificate().getLiveClassId());
+        Set<SseEmitter> emitters = sessions.get(key);
+        if (emitters != null) {
+            emitters.forEach(emitter -> send(emitter, "certificate", event.certificate()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sessions.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+    }
+
+    private void send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // Connection already closed; the completion callback unregisters the emitter
+            log.debug("Dropping {} event for closed playback stream: {}", name, e.getMessage());
+        }
+    }
+
+    private void acquire(UUID userId) {
+        WatchProgressProperties.Stream limits = properties.getStream();
+        if (openSessions.incrementAndGet() > limits.getMaxSessions()) {
+            openSessions.decrementAndGet();
+            throw new ServiceOverloadedException("Too many playback sessions open", RETRY_AFTER_SECONDS);
+        }
+        boolean[] admitted = new boolean[1];
+        sessionsPerUser.compute(userId, (id, count) -> {
+            int current = count != null ? count : 0;
+            admitted[0] = current < limits.getMaxSessionsPerUser();
+            return admitted[0] ? current + 1 : count;
+        });
+        if (!admitted[0]) {
+            openSessions.decrementAndGet();
+            throw new ServiceOverloadedException("Too many playback sessions open for this user", RETRY_AFTER_SECONDS);
+        }
+    }
+
+    // Completion, timeout and error callbacks may all fire for one emitter; only the first releases it
+    private void unregister(ProgressKey key, SseEmitter emitter) {
+        boolean[] removed = new boolean[1];
+        sessions.computeIfPresent(key, (k, emitters) -> {
+            removed[0] = emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+        if (removed[0]) {
+            sessionsPerUser.computeIfPresent(key.userId(), (id, count) -> count > 1 ? count - 1 : null);
+            openSessions.decrementAndGet();
+        }
+    }
+}
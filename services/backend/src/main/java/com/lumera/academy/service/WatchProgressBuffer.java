@@ -0,0 +1,306 @@
+package com.lumera.academy.service;
+
+import com.lumera.academy.config.WatchProgressProperties;
+import com.lumera.academy.dto.UpdateWatchProgressRequest;
+import com.lumera.academy.dto.WatchProgressDTO;
+import com.lumera.academy.entity.WatchCoverage;
+import com.lumera.academy.entity.WatchProgress;
+import com.lumera.academy.event.ClassCompletedEvent;
+import com.lumera.academy.exception.ResourceNotFoundException;
+import com.lumera.academy.repository.WatchProgressBatchRepository;
+import com.lumera.academy.repository.WatchProgressBatchRepository.ProgressKey;
+import com.lumera.academy.repository.WatchProgressBatchRepository.ProgressSeed;
+import com.lumera.academy.repository.WatchProgressBatchRepository.ProgressWrite;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Write-behind buffer for watch progress heartbeats.
+ *
+ * Heartbeats are folded into one in-memory entry per (user, class) that keeps the furthest
+ * watched position, the latest playback position and the watched-segment coverage. Dirty entries are written to
+ * watch_progress in periodic JDBC batches, and completion is settled by a guarded update
+ * so each transition is observed exactly once.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WatchProgressBuffer {
+
+    private final WatchProgressProperties properties;
+    private final WatchProgressBatchRepository batchRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentMap<ProgressKey, PendingProgress> pending = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return properties.getWriteBehind().isEnabled();
+    }
+
+    /**
+     * Fold a heartbeat into the buffer and return the resulting (not yet persisted) progress.
+     */
+    public WatchProgressDTO record(UUID userId, UpdateWatchProgressRequest request) {
+        return fold(userId, request).progress();
+    }
+
+    /**
+     * Fold a batch of heartbeats into the buffer.
+     *
+     * @return the classes whose buffered progress crossed the completion threshold with these samples;
+     * their completion is persisted and announced by the next flush
+     */
+    public List<UUID> recordAll(UUID userId, List<UpdateWatchProgressRequest> samples) {
+        Set<UUID> completed = new LinkedHashSet<>();
+        for (UpdateWatchProgressRequest sample : samples) {
+            if (fold(userId, sample).completedNow()) {
+                completed.add(sample.getLiveClassId());
+            }
+        }
+        return List.copyOf(completed);
+    }
+
+    /**
+     * Current buffered view of a progress entry, if one is held in memory.
+     */
+    public Optional<WatchProgressDTO> peek(UUID userId, UUID liveClassId) {
+        PendingProgress state = pending.get(new ProgressKey(userId, liveClassId));
+        return state != null ? Optional.ofNullable(state.snapshot()) : Optional.empty();
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.watch-progress.write-behind.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        if (!pending.isEmpty()) {
+            flush(false);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (!pending.isEmpty()) {
+            log.info("Flushing {} buffered watch progress entries before shutdown", pending.size());
+            flush(true);
+        }
+    }
+
+    /**
+     * Persist every dirty entry in one transaction. Entries that saw no heartbeat since the
+     * previous flush are evicted; with {@code evictAll} every persisted entry is evicted too.
+     */
+    public synchronized void flush(boolean evictAll) {
+        List<PendingProgress> drained = new ArrayList<>();
+        List<ProgressWrite> writes = new ArrayList<>();
+        List<ProgressKey> completionCandidates = new ArrayList<>();
+
+        for (PendingProgress state : pending.values()) {
+            ProgressWrite write = state.drain();
+            if (write == null) {
+                if (state.evictIfClean()) {
+                    pending.remove(state.key, state);
+                }
+                continue;
+            }
+            drained.add(state);
+            writes.add(write);
+            if (state.awaitsCompletion()) {
+                completionCandidates.add(state.key);
+            }
+        }
+
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        List<ProgressKey> completed;
+        try {
+            completed = transactionTemplate.execute(status -> {
+                batchRepository.upsertAll(writes);
+                return batchRepository.markCompleted(completionCandidates, Instant.now());
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} buffered watch progress entries, will retry", writes.size(), e);
+            drained.forEach(PendingProgress::markDirty);
+            return;
+        }
+
+        for (ProgressKey key : completionCandidates) {
+            PendingProgress state = pending.get(key);
+            if (state != null) {
+                state.settleCompletion();
+            }
+        }
+        if (evictAll) {
+            for (PendingProgress state : drained) {
+                if (state.evictIfClean()) {
+                    pending.remove(state.key, state);
+                }
+            }
+        }
+
+        log.debug("Flushed {} watch progress entries ({} completions)", writes.size(), completed.size());
+        completed.forEach(this::onCompleted);
+    }
+
+    private Folded fold(UUID userId, UpdateWatchProgressRequest request) {
+        ProgressKey key = new ProgressKey(userId, request.getLiveClassId());
+        while (true) {
+            PendingProgress state = pending.get(key);
+            if (state == null) {
+                state = admit(key);
+            }
+            Folded folded = state.fold(request.getCurrentPosition(), request.getTotalDuration());
+            if (folded != null) {
+                return folded;
+            }
+            // Entry was evicted between lookup and fold - start over from a fresh one
+        }
+    }
+
+    private PendingProgress admit(ProgressKey key) {
+        if (pending.size() >= properties.getWriteBehind().getMaxBufferedEntries()) {
+            log.warn("Watch progress buffer reached {} entries - forcing flush", pending.size());
+            flush(true);
+        }
+        ProgressSeed seed = batchRepository.findSeed(key.userId(), key.liveClassId())
+                .orElseThrow(() -> new ResourceNotFoundException("LiveClass", "id", key.liveClassId()));
+        return pending.computeIfAbsent(key, k -> new PendingProgress(k, seed));
+    }
+
+    private void onCompleted(ProgressKey key) {
+        log.info("Student {} completed class {} - queueing certificate", key.userId(), key.liveClassId());
+        eventPublisher.publishEvent(new ClassCompletedEvent(key.userId(), key.liveClassId()));
+    }
+
+    private record Folded(WatchProgressDTO progress, boolean completedNow) {
+    }
+
+    /**
+     * Mutable per-(user, class) state. All access goes through the instance monitor.
+     */
+    private static final class PendingProgress {
+
+        private final ProgressKey key;
+        private final UUID progressId;
+        private final String classTitle;
+        private final WatchCoverage coverage;
+        private int watchedSeconds;
+        private int totalDurationSeconds;
+        private int lastPosition;
+        // Position of the last write; the coverage already credits everything since
+        private int drainedPosition;
+        private Instant lastWatchedAt;
+        private boolean completed;
+        private Instant completedAt;
+        private boolean completionSettled;
+        private boolean dirty;
+        private boolean evicted;
+
+        PendingProgress(ProgressKey key, ProgressSeed seed) {
+            this.key = key;
+            this.progressId = seed.progressId();
+            this.classTitle = seed.classTitle();
+            this.coverage = WatchCoverage.decode(seed.coverage());
+            this.watchedSeconds = seed.watchedSeconds();
+            this.totalDurationSeconds = seed.totalDurationSeconds();
+            this.lastPosition = seed.lastPosition();
+            this.drainedPosition = seed.lastPosition();
+            this.completed = seed.completed();
+            this.completedAt = seed.completedAt();
+            this.completionSettled = seed.completed();
+        }
+
+        synchronized Folded fold(int currentPosition, int totalDuration) {
+            if (evicted) {
+                return null;
+            }
+            Instant now = Instant.now();
+            coverage.advance(lastPosition, currentPosition, totalDuration);
+            lastPosition = currentPosition;
+            totalDurationSeconds = totalDuration;
+            lastWatchedAt = now;
+            if (currentPosition > watchedSeconds) {
+                watchedSeconds = currentPosition;
+            }
+            boolean completedNow = !completed
+                    && coverage.percentage(totalDuration) >= WatchProgress.COMPLETION_THRESHOLD;
+            if (completedNow) {
+                completed = true;
+                completedAt = now;
+            }
+            dirty = true;
+            return new Folded(toDto(), completedNow);
+        }
+
+        synchronized WatchProgressDTO snapshot() {
+            return evicted ? null : toDto();
+        }
+
+        synchronized ProgressWrite drain() {
+            if (!dirty) {
+                return null;
+            }
+            dirty = false;
+            ProgressWrite write = new ProgressWrite(key.userId(), key.liveClassId(), watchedSeconds,
+                    totalDurationSeconds, drainedPosition, lastPosition, coverage.toBytes(),
+                    coverage.percentage(totalDurationSeconds), lastWatchedAt);
+            drainedPosition = lastPosition;
+            return write;
+        }
+
+        synchronized boolean awaitsCompletion() {
+            return completed && !completionSettled;
+        }
+
+        synchronized void settleCompletion() {
+            completionSettled = true;
+        }
+
+        synchronized void markDirty() {
+            dirty = true;
+        }
+
+        synchronized boolean evictIfClean() {
+            if (dirty) {
+                return false;
+            }
+            evicted = true;
+            return true;
+        }
+
+        private WatchProgressDTO toDto() {
+            return WatchProgressDTO.builder()
+                    .id(progressId)
+                    .userId(key.userId())
+                    .liveClassId(key.liveClassId())
+                    .classTitle(classTitle)
+                    .watchedSeconds(watchedSeconds)
+                    .totalDurationSeconds(totalDurationSeconds)
+                    .watchPercentage(coverage.percentage(totalDurationSeconds))
+                    .lastPosition(lastPosition)
+                    .completed(completed)
+                    .completedAt(completedAt)
+                    .lastWatchedAt(lastWatchedAt)
+                    .build();
+        }
+    }
+}
@@ -1,20 +1,30 @@
 package com.lumera.academy.service;
 
 import com.lumera.academy.dto.UpdateWatchProgressRequest;
+import com.lumera.academy.dto.WatchProgressBatchResultDTO;
 import com.lumera.academy.dto.WatchProgressDTO;
-import com.lumera.academy.entity.LiveClass;
-import com.lumera.academy.entity.User;
+import com.lumera.academy.entity.WatchCoverage;
 import com.lumera.academy.entity.WatchProgress;
+import com.lumera.academy.event.ClassCompletedEvent;
+import com.lumera.academy.exception.BadRequestException;
 import com.lumera.academy.exception.ResourceNotFoundException;
-import com.lumera.academy.repository.LiveClassRepository;
-import com.lumera.academy.repository.UserRepository;
+import com.lumera.academy.repository.WatchProgressBatchRepository;
+import com.lumera.academy.repository.WatchProgressBatchRepository.ProgressKey;
+import com.lumera.academy.repository.WatchProgressBatchRepository.ProgressWrite;
 import com.lumera.academy.repository.WatchProgressRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -24,14 +34,20 @@ import java.util.stream.Collectors;
 public class WatchProgressService {
 
     private final WatchProgressRepository watchProgressRepository;
-    private final UserRepository userRepository;
-    private final LiveClassRepository liveClassRepository;
-    private final CertificateService certificateService;
+    private final WatchProgressBatchRepository batchRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WatchProgressBuffer watchProgressBuffer;
+    private final HeartbeatPolicy heartbeatPolicy;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Get watch progress for a specific class and user
      */
     public WatchProgressDTO getProgress(UUID userId, UUID liveClassId) {
+        Optional<WatchProgressDTO> buffered = watchProgressBuffer.peek(userId, liveClassId);
+        if (buffered.isPresent()) {
+            return buffered.get();
+        }
         return watchProgressRepository.findByUserIdAndLiveClassId(userId, liveClassId)
                 .map(WatchProgressDTO::fromEntity)
                 .orElse(null);
@@ -44,6 +60,7 @@ public class WatchProgressService {
         return watchProgressRepository.findByUserId(userId)
                 .stream()
                 .map(WatchProgressDTO::fromEntity)
+                .map(progress -> watchProgressBuffer.peek(userId, progress.getLiveClassId()).orElse(progress))
                 .collect(Collectors.toList());
     }
 
@@ -58,38 +75,108 @@ public class WatchProgressService {
     }
 
     /**
-     * Update watch progress - called periodically by frontend during video playback
+     * Update watch progress - called periodically by frontend during video playback.
+     * In write-behind mode the heartbeat is only folded into memory and persisted by the next flush;
+     * otherwise heartbeats that barely moved are acknowledged without a write.
+     * The response carries the delay the player should wait before reporting again.
      */
-    @Transactional
     public WatchProgressDTO updateProgress(UUID userId, UpdateWatchProgressRequest request) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
+        WatchProgressDTO progress;
+        if (watchProgressBuffer.isEnabled()) {
+            progress = watchProgressBuffer.record(userId, request);
+        } else {
+            progress = heartbeatPolicy.absorb(userId, request).orElse(null);
+            if (progress == null) {
+                progress = transactionTemplate.execute(status -> applyProgress(userId, request));
+                heartbeatPolicy.remember(userId, progress);
+            }
+        }
+        progress.setNextReportAfterSeconds(heartbeatPolicy.nextReportAfterSeconds(progress));
+        return progress;
+    }
 
-        LiveClass liveClass = liveClassRepository.findById(request.getLiveClassId())
-                .orElseThrow(() -> new ResourceNotFoundException("LiveClass", "id", request.getLiveClassId()));
+    /**
+     * Apply buffered samples (e.g. replayed after offline playback) in one transaction.
+     * Samples are folded per class in order, then written with a single JDBC batch.
+     * In write-behind mode completions are taken from the buffered state and persisted by the next flush.
+     */
+    public WatchProgressBatchResultDTO updateProgressBatch(UUID userId, List<UpdateWatchProgressRequest> samples) {
+        if (watchProgressBuffer.isEnabled()) {
+            List<UUID> completed = watchProgressBuffer.recordAll(userId, samples);
+            return WatchProgressBatchResultDTO.builder()
+                    .samplesAccepted(samples.size())
+                    .classesUpdated((int) samples.stream().map(UpdateWatchProgressRequest::getLiveClassId).distinct().count())
+                    .completedClassIds(completed)
+                    .build();
+        }
 
-        WatchProgress progress = watchProgressRepository
-                .findByUserIdAndLiveClassId(userId, request.getLiveClassId())
-                .orElseGet(() -> WatchProgress.builder()
-                        .user(user)
-                        .liveClass(liveClass)
-                        .build());
+        Instant now = Instant.now();
+        Map<UUID, SampleFold> folds = new LinkedHashMap<>();
+        for (UpdateWatchProgressRequest sample : samples) {
+            folds.computeIfAbsent(sample.getLiveClassId(), id -> new SampleFold())
+                    .add(sample.getCurrentPosition(), sample.getTotalDuration());
+        }
+        List<ProgressWrite> writes = new ArrayList<>(folds.size());
+        folds.forEach((liveClassId, fold) -> writes.add(fold.toWrite(userId, liveClassId, now)));
+        // The persisted coverage may already be close to the threshold, so every class is a candidate
+        List<ProgressKey> candidates = writes.stream().map(ProgressWrite::key).toList();
+
+        List<ProgressKey> completed;
+        try {
+            completed = transactionTemplate.execute(status -> {
+                batchRepository.upsertAll(writes);
+                return batchRepository.markCompleted(candidates, now);
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw new BadRequestException("Batch references a class that does not exist");
+        }
 
-        boolean wasCompleted = progress.isCompleted();
+        for (ProgressKey key : completed) {
+            log.info("Student {} completed class {} - queueing certificate", userId, key.liveClassId());
+            eventPublisher.publishEvent(new ClassCompletedEvent(userId, key.liveClassId()));
+        }
 
-        // Update progress
-        progress.updateProgress(request.getCurrentPosition(), request.getTotalDuration());
+        return WatchProgressBatchResultDTO.builder()
+                .samplesAccepted(samples.size())
+                .classesUpdated(writes.size())
+                .completedClassIds(completed.stream().map(ProgressKey::liveClassId).toList())
+                .build();
+    }
 
-        WatchProgress saved = watchProgressRepository.save(progress);
+    private WatchProgressDTO applyProgress(UUID userId, UpdateWatchProgressRequest request) {
+        // Coverage for a first report on this class, playback assumed to have started at 0
+        WatchCoverage initialCoverage = WatchCoverage.empty();
+        initialCoverage.advance(0, request.getCurrentPosition(), request.getTotalDuration());
+
+        WatchProgressRepository.UpsertResult saved;
+        try {
+            saved = watchProgressRepository.upsertProgress(userId, request.getLiveClassId(),
+                    request.getCurrentPosition(), request.getTotalDuration(),
+                    initialCoverage.toBytes(), initialCoverage.percentage(request.getTotalDuration()),
+                    WatchCoverage.MAX_CONTIGUOUS_GAP_SECONDS, WatchProgress.COMPLETION_THRESHOLD, Instant.now());
+        } catch (DataIntegrityViolationException e) {
+            throw new ResourceNotFoundException("LiveClass", "id", request.getLiveClassId());
+        }
 
-        // If just completed (90%+ watched), auto-issue certificate
-        if (!wasCompleted && saved.isCompleted()) {
-            log.info("Student {} completed class {} - triggering certificate generation",
-                    userId, request.getLiveClassId());
-            certificateService.issueCertificate(userId, request.getLiveClassId());
+        // If just completed (90%+ watched), queue the certificate once this transaction commits
+        if (!saved.getWasCompleted() && saved.getCompleted()) {
+            log.info("Student {} completed class {} - queueing certificate", userId, request.getLiveClassId());
+            eventPublisher.publishEvent(new ClassCompletedEvent(userId, request.getLiveClassId()));
         }
 
-        return WatchProgressDTO.fromEntity(saved);
+        return WatchProgressDTO.builder()
+                .id(saved.getId())
+                .userId(userId)
+                .liveClassId(request.getLiveClassId())
+                .classTitle(saved.getClassTitle())
+                .watchedSeconds(saved.getWatchedSeconds())
+                .totalDurationSeconds(saved.getTotalDurationSeconds())
+                .watchPercentage(saved.getWatchPercentage())
+                .lastPosition(saved.getLastPosition())
+                .completed(saved.getCompleted())
+                .completedAt(saved.getCompletedAt())
+                .lastWatchedAt(saved.getLastWatchedAt())
+                .build();
     }
 
     /**
@@ -107,9 +194,32 @@ public class WatchProgressService {
     }
 
     /**
-     * Get completion count for all classes by an educator
+     * Per-class accumulator for a batch of samples. Coverage is credited between consecutive
+     * samples of the batch; the upsert credits the stored last position up to the first sample
+     * and merges the persisted coverage in.
      */
-    public long getEducatorCompletionCount(UUID educatorId) {
-        return watchProgressRepository.countCompletedByEducatorId(educatorId);
+    private static final class SampleFold {
+
+        private final WatchCoverage coverage = WatchCoverage.empty();
+        private int furthestPosition;
+        private int firstPosition = -1;
+        private int lastPosition = -1;
+        private int totalDuration;
+
+        void add(int position, int duration) {
+            if (lastPosition >= 0) {
+                coverage.advance(lastPosition, position, duration);
+            } else {
+                firstPosition = position;
+            }
+            furthestPosition = Math.max(furthestPosition, position);
+            lastPosition = position;
+            totalDuration = duration;
+        }
+
+        ProgressWrite toWrite(UUID userId, UUID liveClassId, Instant now) {
+            return new ProgressWrite(userId, liveClassId, furthestPosition, totalDuration, firstPosition,
+                    lastPosition, coverage.toBytes(), coverage.percentage(totalDuration), now);
+        }
     }
 }
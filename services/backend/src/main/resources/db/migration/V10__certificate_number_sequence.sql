@@ -0,0 +1,4 @@
+-- Certificate numbers are handed out in blocks: each node reserves INCREMENT BY consecutive
+-- values with one nextval() and allocates them from memory (see CertificateNumberAllocator).
+-- Values start at seven digits so they never clash with the older random five-digit numbers.
+CREATE SEQUENCE certificate_number_seq START WITH 1000000 INCREMENT BY 100;
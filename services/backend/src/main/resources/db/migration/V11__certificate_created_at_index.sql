@@ -0,0 +1,2 @@
+-- Lets each node pick up certificates issued elsewhere into its verification Bloom filter
+CREATE INDEX idx_certificates_created_at ON certificates(created_at);
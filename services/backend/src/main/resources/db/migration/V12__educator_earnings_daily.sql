@@ -0,0 +1,74 @@
+-- Daily earnings per educator and payment status, maintained by a trigger in the same transaction
+-- as the enrollment change so totals are a sum over days instead of over every enrollment.
+-- Days are UTC calendar days of enrollments.created_at.
+CREATE TABLE educator_earnings_daily (
+    educator_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    day DATE NOT NULL,
+    payment_status VARCHAR(30) NOT NULL,
+    enrollments BIGINT NOT NULL DEFAULT 0,
+    amount_paid DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    platform_fee DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    educator_earning DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (educator_id, day, payment_status)
+);
+
+CREATE OR REPLACE FUNCTION educator_earnings_daily_add(p_live_class_id UUID, p_created_at TIMESTAMP WITH TIME ZONE,
+                                                       p_payment_status VARCHAR, p_sign INTEGER,
+                                                       p_amount_paid DECIMAL, p_platform_fee DECIMAL,
+                                                       p_educator_earning DECIMAL)
+RETURNS VOID AS $$
+BEGIN
+    INSERT INTO educator_earnings_daily AS d (educator_id, day, payment_status, enrollments,
+                                              amount_paid, platform_fee, educator_earning)
+    SELECT lc.educator_id,
+           (COALESCE(p_created_at, NOW()) AT TIME ZONE 'UTC')::date,
+           p_payment_status,
+           p_sign,
+           p_sign * COALESCE(p_amount_paid, 0),
+           p_sign * COALESCE(p_platform_fee, 0),
+           p_sign * COALESCE(p_educator_earning, 0)
+    FROM live_classes lc
+    WHERE lc.id = p_live_class_id
+    ON CONFLICT (educator_id, day, payment_status) DO UPDATE SET
+        enrollments = d.enrollments + EXCLUDED.enrollments,
+        amount_paid = d.amount_paid + EXCLUDED.amount_paid,
+        platform_fee = d.platform_fee + EXCLUDED.platform_fee,
+        educator_earning = d.educator_earning + EXCLUDED.educator_earning,
+        updated_at = NOW();
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION educator_earnings_daily_track()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        PERFORM educator_earnings_daily_add(OLD.live_class_id, OLD.created_at, OLD.payment_status, -1,
+                                            OLD.amount_paid, OLD.platform_fee, OLD.educator_earning);
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        PERFORM educator_earnings_daily_add(NEW.live_class_id, NEW.created_at, NEW.payment_status, 1,
+                                            NEW.amount_paid, NEW.platform_fee, NEW.educator_earning);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER track_enrollment_earnings
+    AFTER INSERT OR DELETE OR UPDATE OF payment_status, amount_paid, platform_fee, educator_earning,
+        live_class_id, created_at ON enrollments
+    FOR EACH ROW EXECUTE FUNCTION educator_earnings_daily_track();
+
+-- Seed from the current data
+INSERT INTO educator_earnings_daily (educator_id, day, payment_status, enrollments,
+                                     amount_paid, platform_fee, educator_earning)
+SELECT lc.educator_id,
+       (e.created_at AT TIME ZONE 'UTC')::date,
+       e.payment_status,
+       COUNT(*),
+       COALESCE(SUM(e.amount_paid), 0),
+       COALESCE(SUM(e.platform_fee), 0),
+       COALESCE(SUM(e.educator_earning), 0)
+FROM enrollments e
+JOIN live_classes lc ON lc.id = e.live_class_id
+GROUP BY lc.educator_id, (e.created_at AT TIME ZONE 'UTC')::date, e.payment_status;
@@ -0,0 +1,2 @@
+-- Keyset pagination of an educator's full ledger, newest first, per class
+CREATE INDEX idx_enrollments_class_created ON enrollments(live_class_id, created_at DESC, id DESC);
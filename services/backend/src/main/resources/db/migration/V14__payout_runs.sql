@@ -0,0 +1,34 @@
+-- Nightly payout batches. A run aggregates the completed, unpaid earnings of every educator into
+-- one payout record each, checkpointing after every chunk of educators so a crashed run resumes
+-- where it stopped. Only the node holding the lease advances a run.
+CREATE TABLE payout_runs (
+    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    run_date DATE NOT NULL UNIQUE,
+    status VARCHAR(20) NOT NULL DEFAULT 'RUNNING' CHECK (status IN ('RUNNING', 'COMPLETED')),
+    -- Enrollments created at or after the cutoff wait for the next run
+    cutoff TIMESTAMP WITH TIME ZONE NOT NULL,
+    last_educator_id UUID,
+    educators_paid INTEGER NOT NULL DEFAULT 0,
+    amount_total DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    locked_by UUID,
+    locked_until TIMESTAMP WITH TIME ZONE,
+    started_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    finished_at TIMESTAMP WITH TIME ZONE,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()
+);
+
+CREATE TRIGGER update_payout_runs_updated_at BEFORE UPDATE ON payout_runs FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
+
+-- Sent to the payment processor, so a payout retried after a crash is only paid once
+ALTER TABLE payout_records ADD COLUMN idempotency_key VARCHAR(100) UNIQUE;
+ALTER TABLE payout_records ADD COLUMN payout_run_id UUID REFERENCES payout_runs(id) ON DELETE SET NULL;
+ALTER TABLE payout_records ADD COLUMN attempts INTEGER NOT NULL DEFAULT 0;
+
+CREATE INDEX idx_payout_records_run_status ON payout_records(payout_run_id, status);
+
+-- Set once an enrollment's earning is part of a payout; cleared again if that payout fails
+ALTER TABLE enrollments ADD COLUMN payout_record_id UUID REFERENCES payout_records(id) ON DELETE SET NULL;
+
+CREATE INDEX idx_enrollments_unpaid ON enrollments(live_class_id, created_at)
+    WHERE payment_status = 'COMPLETED' AND payout_record_id IS NULL;
+CREATE INDEX idx_enrollments_payout_record ON enrollments(payout_record_id) WHERE payout_record_id IS NOT NULL;
@@ -0,0 +1,75 @@
+-- Bound the coverage helpers by the recording and drop their per-segment/per-byte loops.
+-- Positions are clamped to [0, total_seconds] before anything is marked, so a bogus position
+-- can no longer grow the bitmap past ceil(total_seconds / 5) segments.
+DROP FUNCTION IF EXISTS watch_coverage_advance(BYTEA, INTEGER, INTEGER, INTEGER);
+
+-- Credit continuous playback between two reported positions; jumps larger than max_gap are seeks.
+-- Only the two edge bytes are OR-ed, the bytes between them are spliced in as 0xff.
+CREATE OR REPLACE FUNCTION watch_coverage_advance(coverage BYTEA, previous_position INTEGER,
+                                                  current_position INTEGER, max_gap INTEGER,
+                                                  total_seconds INTEGER)
+RETURNS BYTEA AS $$
+DECLARE
+    result BYTEA := COALESCE(coverage, ''::bytea);
+    limit_seconds INTEGER := LEAST(GREATEST(COALESCE(total_seconds, 0), 0), 86400);
+    from_second INTEGER := LEAST(GREATEST(previous_position, 0), limit_seconds);
+    to_second INTEGER := LEAST(GREATEST(current_position, 0), limit_seconds);
+    first_segment INTEGER;
+    last_segment INTEGER;
+    first_byte INTEGER;
+    last_byte INTEGER;
+BEGIN
+    IF to_second - from_second <= 0 OR to_second - from_second > max_gap THEN
+        RETURN result;
+    END IF;
+    first_segment := from_second / 5;
+    last_segment := (to_second - 1) / 5;
+    first_byte := first_segment / 8;
+    last_byte := last_segment / 8;
+    IF length(result) <= last_byte THEN
+        result := result || decode(repeat('00', last_byte + 1 - length(result)), 'hex');
+    END IF;
+    IF first_byte = last_byte THEN
+        RETURN set_byte(result, first_byte, get_byte(result, first_byte)
+                | ((255 << (first_segment % 8)) & (255 >> (7 - last_segment % 8))));
+    END IF;
+    result := set_byte(result, first_byte, get_byte(result, first_byte) | ((255 << (first_segment % 8)) & 255));
+    result := set_byte(result, last_byte, get_byte(result, last_byte) | (255 >> (7 - last_segment % 8)));
+    IF last_byte - first_byte > 1 THEN
+        result := overlay(result PLACING decode(repeat('ff', last_byte - first_byte - 1), 'hex')
+                          FROM first_byte + 2 FOR last_byte - first_byte - 1);
+    END IF;
+    RETURN result;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+-- Merge two coverage bitmaps: the overlapping prefix is OR-ed in one pass and spliced over
+-- the longer bitmap, instead of rewriting the bytea once per changed byte
+CREATE OR REPLACE FUNCTION watch_coverage_or(a BYTEA, b BYTEA)
+RETURNS BYTEA AS $$
+DECLARE
+    longer BYTEA;
+    shorter BYTEA;
+BEGIN
+    IF length(COALESCE(a, ''::bytea)) >= length(COALESCE(b, ''::bytea)) THEN
+        longer := COALESCE(a, ''::bytea);
+        shorter := COALESCE(b, ''::bytea);
+    ELSE
+        longer := b;
+        shorter := COALESCE(a, ''::bytea);
+    END IF;
+    IF length(shorter) = 0 THEN
+        RETURN longer;
+    END IF;
+    RETURN overlay(longer PLACING (
+            SELECT decode(string_agg(lpad(to_hex(get_byte(longer, i) | get_byte(shorter, i)), 2, '0'), '' ORDER BY i),
+                          'hex')
+            FROM generate_series(0, length(shorter) - 1) AS i)
+        FROM 1 FOR length(shorter));
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+-- Coverage written before the bound existed cannot extend past its own recording
+UPDATE watch_progress
+SET coverage = substring(coverage FROM 1 FOR (total_duration_seconds + 39) / 40)
+WHERE length(coverage) > (total_duration_seconds + 39) / 40;
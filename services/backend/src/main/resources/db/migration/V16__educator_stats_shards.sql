@@ -0,0 +1,33 @@
+-- Spread the educator dashboard counters over shards. With a single row per educator every
+-- completion and certificate of that educator's classes queued on the same row lock inside the
+-- writer's transaction; writes are now spread over 16 shards and reads sum the shards.
+ALTER TABLE educator_stats RENAME TO educator_stats_shards;
+ALTER TABLE educator_stats_shards ADD COLUMN shard SMALLINT NOT NULL DEFAULT 0;
+ALTER TABLE educator_stats_shards DROP CONSTRAINT educator_stats_pkey;
+ALTER TABLE educator_stats_shards ADD PRIMARY KEY (educator_id, shard);
+ALTER TABLE educator_stats_shards ALTER COLUMN shard DROP DEFAULT;
+
+CREATE VIEW educator_stats AS
+SELECT educator_id,
+       CAST(SUM(class_completions) AS BIGINT) AS class_completions,
+       CAST(SUM(certificates_issued) AS BIGINT) AS certificates_issued,
+       MAX(updated_at) AS updated_at
+FROM educator_stats_shards
+GROUP BY educator_id;
+
+-- The shard follows the backend process. This spreads contention rather than removing it:
+-- connections whose pids fall on the same shard still queue on that educator's row, but far
+-- fewer writers share each row than when there was only one
+CREATE OR REPLACE FUNCTION educator_stats_add(p_live_class_id UUID, p_completions BIGINT, p_certificates BIGINT)
+RETURNS VOID AS $$
+BEGIN
+    INSERT INTO educator_stats_shards AS s (educator_id, shard, class_completions, certificates_issued)
+    SELECT lc.educator_id, pg_backend_pid() % 16, p_completions, p_certificates
+    FROM live_classes lc
+    WHERE lc.id = p_live_class_id
+    ON CONFLICT (educator_id, shard) DO UPDATE SET
+        class_completions = s.class_completions + EXCLUDED.class_completions,
+        certificates_issued = s.certificates_issued + EXCLUDED.certificates_issued,
+        updated_at = NOW();
+END;
+$$ LANGUAGE plpgsql;
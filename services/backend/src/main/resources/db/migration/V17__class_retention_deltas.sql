@@ -0,0 +1,125 @@
+-- The retention trigger used to upsert the shared class_retention rows inside every heartbeat
+-- transaction, so all viewers of a class queued on the same 20 rows and deadlocked when they
+-- touched them in different orders. It now only appends to class_retention_deltas, which a
+-- scheduled job folds into class_retention; readers add the pending deltas on top.
+CREATE TABLE class_retention_deltas (
+    id BIGSERIAL PRIMARY KEY,
+    live_class_id UUID NOT NULL REFERENCES live_classes(id) ON DELETE CASCADE,
+    bucket SMALLINT NOT NULL,
+    stopped_delta BIGINT NOT NULL,
+    watched_delta BIGINT NOT NULL
+);
+
+CREATE INDEX idx_class_retention_deltas_class ON class_retention_deltas(live_class_id);
+
+-- Whether any segment in [first_segment, last_segment] is covered: the two edge bytes are
+-- masked and the bytes between them are counted in one call
+CREATE OR REPLACE FUNCTION watch_coverage_any(coverage BYTEA, first_segment INTEGER, last_segment INTEGER)
+RETURNS BOOLEAN AS $$
+DECLARE
+    first_seg INTEGER := GREATEST(first_segment, 0);
+    last_seg INTEGER := LEAST(last_segment, length(coverage) * 8 - 1);
+    first_byte INTEGER;
+    last_byte INTEGER;
+BEGIN
+    IF coverage IS NULL OR last_seg < first_seg THEN
+        RETURN FALSE;
+    END IF;
+    first_byte := first_seg / 8;
+    last_byte := last_seg / 8;
+    IF first_byte = last_byte THEN
+        RETURN (get_byte(coverage, first_byte) & (255 << (first_seg % 8)) & (255 >> (7 - last_seg % 8))) <> 0;
+    END IF;
+    RETURN (get_byte(coverage, first_byte) & (255 << (first_seg % 8))) <> 0
+        OR (get_byte(coverage, last_byte) & (255 >> (7 - last_seg % 8))) <> 0
+        OR (last_byte - first_byte > 1
+            AND bit_count(substring(coverage FROM first_byte + 2 FOR last_byte - first_byte - 1)) > 0);
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+-- Whether the bytes holding a bucket differ between two bitmaps
+CREATE OR REPLACE FUNCTION class_retention_changed(old_coverage BYTEA, new_coverage BYTEA,
+                                                   bucket INTEGER, total_seconds INTEGER)
+RETURNS BOOLEAN AS $$
+    SELECT substring(old_coverage FROM first_byte + 1 FOR last_byte - first_byte + 1)
+               IS DISTINCT FROM substring(new_coverage FROM first_byte + 1 FOR last_byte - first_byte + 1)
+    FROM (SELECT (CAST(bucket AS BIGINT) * total_seconds / 20 / 5 / 8)::INTEGER AS first_byte,
+                 ((CAST(bucket + 1 AS BIGINT) * total_seconds / 20 - 1) / 5 / 8)::INTEGER AS last_byte) AS span;
+$$ LANGUAGE sql IMMUTABLE;
+
+DROP FUNCTION class_retention_add(UUID, INTEGER, BIGINT, BIGINT);
+
+-- Add (p_sign = 1) or remove (p_sign = -1) one progress row's full contribution
+CREATE OR REPLACE FUNCTION class_retention_apply_row(p_live_class_id UUID, p_coverage BYTEA,
+                                                     p_last_position INTEGER, p_total_seconds INTEGER,
+                                                     p_sign INTEGER)
+RETURNS VOID AS $$
+BEGIN
+    IF p_total_seconds IS NULL OR p_total_seconds <= 0 THEN
+        RETURN;
+    END IF;
+    INSERT INTO class_retention_deltas (live_class_id, bucket, stopped_delta, watched_delta)
+    SELECT p_live_class_id, b, stopped, watched
+    FROM (SELECT b,
+                 CASE WHEN b = class_retention_bucket(p_last_position, p_total_seconds) THEN p_sign ELSE 0 END AS stopped,
+                 CASE WHEN class_retention_watched(p_coverage, b, p_total_seconds) THEN p_sign ELSE 0 END AS watched
+          FROM generate_series(0, 19) AS b) AS contribution
+    WHERE stopped <> 0 OR watched <> 0;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION class_retention_track()
+RETURNS TRIGGER AS $$
+DECLARE
+    total INTEGER;
+    old_bucket INTEGER;
+    new_bucket INTEGER;
+    coverage_changed BOOLEAN;
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM class_retention_apply_row(NEW.live_class_id, NEW.coverage, NEW.last_position,
+                                          NEW.total_duration_seconds, 1);
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        PERFORM class_retention_apply_row(OLD.live_class_id, OLD.coverage, OLD.last_position,
+                                          OLD.total_duration_seconds, -1);
+        RETURN NULL;
+    END IF;
+
+    -- A changed duration moves every bucket boundary, so re-count the row
+    IF NEW.total_duration_seconds IS DISTINCT FROM OLD.total_duration_seconds THEN
+        PERFORM class_retention_apply_row(OLD.live_class_id, OLD.coverage, OLD.last_position,
+                                          OLD.total_duration_seconds, -1);
+        PERFORM class_retention_apply_row(NEW.live_class_id, NEW.coverage, NEW.last_position,
+                                          NEW.total_duration_seconds, 1);
+        RETURN NULL;
+    END IF;
+
+    total := NEW.total_duration_seconds;
+    IF total IS NULL OR total <= 0 THEN
+        RETURN NULL;
+    END IF;
+
+    old_bucket := class_retention_bucket(OLD.last_position, total);
+    new_bucket := class_retention_bucket(NEW.last_position, total);
+    coverage_changed := NEW.coverage IS DISTINCT FROM OLD.coverage;
+    IF old_bucket = new_bucket AND NOT coverage_changed THEN
+        RETURN NULL;
+    END IF;
+
+    -- Coverage only grows, so a bucket can only have become watched if its own bytes changed
+    INSERT INTO class_retention_deltas (live_class_id, bucket, stopped_delta, watched_delta)
+    SELECT NEW.live_class_id, b, stopped, watched
+    FROM (SELECT b,
+                 (CASE WHEN b = new_bucket THEN 1 ELSE 0 END) - (CASE WHEN b = old_bucket THEN 1 ELSE 0 END) AS stopped,
+                 CASE WHEN coverage_changed
+                           AND class_retention_changed(OLD.coverage, NEW.coverage, b, total)
+                           AND NOT class_retention_watched(OLD.coverage, b, total)
+                           AND class_retention_watched(NEW.coverage, b, total)
+                      THEN 1 ELSE 0 END AS watched
+          FROM generate_series(0, 19) AS b) AS delta
+    WHERE stopped <> 0 OR watched <> 0;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
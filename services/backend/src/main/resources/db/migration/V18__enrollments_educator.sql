@@ -0,0 +1,38 @@
+-- The educator of an enrollment's class, copied onto the enrollment so an educator's ledger is
+-- one index range scan instead of a merge over every class they teach. Kept in sync by triggers
+-- on both tables; no foreign key, the class already ties the two together.
+ALTER TABLE enrollments ADD COLUMN educator_id UUID;
+
+CREATE OR REPLACE FUNCTION enrollments_set_educator()
+RETURNS TRIGGER AS $$
+BEGIN
+    SELECT educator_id INTO NEW.educator_id FROM live_classes WHERE id = NEW.live_class_id;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER set_enrollment_educator
+    BEFORE INSERT OR UPDATE OF live_class_id ON enrollments
+    FOR EACH ROW EXECUTE FUNCTION enrollments_set_educator();
+
+CREATE OR REPLACE FUNCTION live_classes_propagate_educator()
+RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE enrollments SET educator_id = NEW.educator_id WHERE live_class_id = NEW.id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER propagate_class_educator
+    AFTER UPDATE OF educator_id ON live_classes
+    FOR EACH ROW WHEN (OLD.educator_id IS DISTINCT FROM NEW.educator_id)
+    EXECUTE FUNCTION live_classes_propagate_educator();
+
+-- Backfill without touching updated_at
+ALTER TABLE enrollments DISABLE TRIGGER update_enrollments_updated_at;
+UPDATE enrollments e SET educator_id = lc.educator_id FROM live_classes lc WHERE lc.id = e.live_class_id;
+ALTER TABLE enrollments ENABLE TRIGGER update_enrollments_updated_at;
+
+-- Keyset pagination of an educator's full ledger, newest first; replaces the per-class index
+CREATE INDEX idx_enrollments_educator_created ON enrollments(educator_id, created_at DESC, id DESC);
+DROP INDEX idx_enrollments_class_created;
@@ -0,0 +1,3 @@
+-- A payout the processor errored on goes back to PENDING but is not claimed again before this
+-- time, so its attempts are spread out instead of used up within one claim loop
+ALTER TABLE payout_records ADD COLUMN next_attempt_at TIMESTAMP WITH TIME ZONE;
@@ -0,0 +1,15 @@
+-- Merge coverage bitmaps with the built-in bit string OR instead of OR-ing byte by byte through
+-- hex text. Both sides are padded to the longer length, OR-ed in one call and converted back;
+-- varbit_send prefixes the bits with their 4-byte length, which is cut off. The bit order within
+-- a byte is irrelevant to an OR, so the bytea layout is preserved.
+CREATE OR REPLACE FUNCTION watch_coverage_or(a BYTEA, b BYTEA)
+RETURNS BYTEA AS $$
+    SELECT CASE
+        WHEN length(COALESCE(a, ''::bytea)) = 0 THEN COALESCE(b, ''::bytea)
+        WHEN length(COALESCE(b, ''::bytea)) = 0 THEN a
+        ELSE substring(varbit_send(
+                CAST('x' || rpad(encode(a, 'hex'), 2 * GREATEST(length(a), length(b)), '0') AS BIT VARYING)
+              | CAST('x' || rpad(encode(b, 'hex'), 2 * GREATEST(length(a), length(b)), '0') AS BIT VARYING))
+             FROM 5)
+    END
+$$ LANGUAGE sql IMMUTABLE;
@@ -0,0 +1,10 @@
+-- The certificate sweep only repairs classes that ended once bulk issuance existed. Classes that
+-- ended earlier are left alone; issuing for them is a deliberate backfill, done by moving
+-- ended_after back.
+CREATE TABLE certificate_sweep_cutoff (
+    ended_after TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+INSERT INTO certificate_sweep_cutoff (ended_after) VALUES (NOW());
+
+CREATE INDEX idx_live_classes_ended ON live_classes(ended_at) WHERE status = 'COMPLETED';
@@ -0,0 +1,79 @@
+-- Watched-segment coverage for watch progress.
+-- Bitset of 5-second segments (segment n = bit n, numbered as by set_bit/get_bit), mirroring
+-- com.lumera.academy.entity.WatchCoverage. watch_percentage is derived from its popcount.
+ALTER TABLE watch_progress ADD COLUMN coverage BYTEA NOT NULL DEFAULT ''::bytea;
+
+-- Credit continuous playback between two reported positions; jumps larger than max_gap are seeks
+CREATE OR REPLACE FUNCTION watch_coverage_advance(coverage BYTEA, previous_position INTEGER,
+                                                  current_position INTEGER, max_gap INTEGER)
+RETURNS BYTEA AS $$
+DECLARE
+    result BYTEA := COALESCE(coverage, ''::bytea);
+    first_segment INTEGER;
+    last_segment INTEGER;
+BEGIN
+    IF current_position - previous_position <= 0 OR current_position - previous_position > max_gap THEN
+        RETURN result;
+    END IF;
+    first_segment := GREATEST(previous_position, 0) / 5;
+    last_segment := (current_position - 1) / 5;
+    IF length(result) <= last_segment / 8 THEN
+        result := result || decode(repeat('00', last_segment / 8 + 1 - length(result)), 'hex');
+    END IF;
+    FOR seg IN first_segment .. last_segment LOOP
+        result := set_bit(result, seg, 1);
+    END LOOP;
+    RETURN result;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+-- Merge two coverage bitmaps
+CREATE OR REPLACE FUNCTION watch_coverage_or(a BYTEA, b BYTEA)
+RETURNS BYTEA AS $$
+DECLARE
+    longer BYTEA;
+    shorter BYTEA;
+    merged INTEGER;
+BEGIN
+    IF length(COALESCE(a, ''::bytea)) >= length(COALESCE(b, ''::bytea)) THEN
+        longer := COALESCE(a, ''::bytea);
+        shorter := COALESCE(b, ''::bytea);
+    ELSE
+        longer := b;
+        shorter := COALESCE(a, ''::bytea);
+    END IF;
+    FOR i IN 0 .. length(shorter) - 1 LOOP
+        merged := get_byte(longer, i) | get_byte(shorter, i);
+        IF merged <> get_byte(longer, i) THEN
+            longer := set_byte(longer, i, merged);
+        END IF;
+    END LOOP;
+    RETURN longer;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+-- Share of a recording's segments that are covered, 0-100
+CREATE OR REPLACE FUNCTION watch_coverage_percentage(coverage BYTEA, total_seconds INTEGER)
+RETURNS DOUBLE PRECISION AS $$
+DECLARE
+    total_segments INTEGER;
+    full_bytes INTEGER;
+    covered BIGINT;
+BEGIN
+    IF total_seconds IS NULL OR total_seconds <= 0 OR coverage IS NULL THEN
+        RETURN 0;
+    END IF;
+    total_segments := (total_seconds + 4) / 5;
+    full_bytes := LEAST(total_segments / 8, length(coverage));
+    covered := bit_count(substring(coverage FROM 1 FOR full_bytes));
+    FOR seg IN full_bytes * 8 .. LEAST(total_segments, length(coverage) * 8) - 1 LOOP
+        covered := covered + get_bit(coverage, seg);
+    END LOOP;
+    RETURN CAST(covered AS DOUBLE PRECISION) / total_segments * 100;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+-- Existing rows only know the furthest position; treat everything before it as watched
+UPDATE watch_progress
+SET coverage = watch_coverage_advance(''::bytea, 0, watched_seconds, watched_seconds)
+WHERE watched_seconds > 0;
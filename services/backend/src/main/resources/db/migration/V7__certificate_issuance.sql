@@ -0,0 +1,9 @@
+-- One certificate per student and class, so concurrent issuance attempts cannot both succeed.
+-- Keep the earliest certificate where a race has already produced duplicates.
+DELETE FROM certificates c
+USING certificates d
+WHERE c.user_id = d.user_id
+  AND c.live_class_id = d.live_class_id
+  AND (c.issued_at, c.id) > (d.issued_at, d.id);
+
+CREATE UNIQUE INDEX uq_certificates_user_class ON certificates(user_id, live_class_id);
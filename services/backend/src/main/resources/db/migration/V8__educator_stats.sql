@@ -0,0 +1,83 @@
+-- Per-educator dashboard counters, maintained by triggers in the same transaction as the
+-- watch_progress / certificates change so every write path (single upsert, JDBC batch, JPA) is covered.
+CREATE TABLE educator_stats (
+    educator_id UUID PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+    class_completions BIGINT NOT NULL DEFAULT 0,
+    certificates_issued BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+CREATE OR REPLACE FUNCTION educator_stats_add(p_live_class_id UUID, p_completions BIGINT, p_certificates BIGINT)
+RETURNS VOID AS $$
+BEGIN
+    INSERT INTO educator_stats AS s (educator_id, class_completions, certificates_issued)
+    SELECT lc.educator_id, p_completions, p_certificates
+    FROM live_classes lc
+    WHERE lc.id = p_live_class_id
+    ON CONFLICT (educator_id) DO UPDATE SET
+        class_completions = s.class_completions + EXCLUDED.class_completions,
+        certificates_issued = s.certificates_issued + EXCLUDED.certificates_issued,
+        updated_at = NOW();
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION educator_stats_track_completion()
+RETURNS TRIGGER AS $$
+DECLARE
+    delta BIGINT := 0;
+BEGIN
+    IF TG_OP <> 'DELETE' AND NEW.completed THEN
+        delta := delta + 1;
+    END IF;
+    IF TG_OP <> 'INSERT' AND OLD.completed THEN
+        delta := delta - 1;
+    END IF;
+    IF delta <> 0 THEN
+        PERFORM educator_stats_add(CASE WHEN TG_OP = 'DELETE' THEN OLD.live_class_id ELSE NEW.live_class_id END,
+                                   delta, 0);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION educator_stats_track_certificate()
+RETURNS TRIGGER AS $$
+DECLARE
+    delta BIGINT := 0;
+BEGIN
+    IF TG_OP <> 'DELETE' AND NOT NEW.revoked THEN
+        delta := delta + 1;
+    END IF;
+    IF TG_OP <> 'INSERT' AND NOT OLD.revoked THEN
+        delta := delta - 1;
+    END IF;
+    IF delta <> 0 THEN
+        PERFORM educator_stats_add(CASE WHEN TG_OP = 'DELETE' THEN OLD.live_class_id ELSE NEW.live_class_id END,
+                                   0, delta);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER track_watch_progress_completion
+    AFTER INSERT OR UPDATE OF completed OR DELETE ON watch_progress
+    FOR EACH ROW EXECUTE FUNCTION educator_stats_track_completion();
+
+CREATE TRIGGER track_certificate_issued
+    AFTER INSERT OR UPDATE OF revoked OR DELETE ON certificates
+    FOR EACH ROW EXECUTE FUNCTION educator_stats_track_certificate();
+
+-- Seed from the current data
+INSERT INTO educator_stats (educator_id, class_completions, certificates_issued)
+SELECT lc.educator_id,
+       COALESCE(SUM(counts.completions), 0),
+       COALESCE(SUM(counts.certificates), 0)
+FROM live_classes lc
+JOIN (
+    SELECT live_class_id, COUNT(*) AS completions, 0 AS certificates
+    FROM watch_progress WHERE completed = TRUE GROUP BY live_class_id
+    UNION ALL
+    SELECT live_class_id, 0, COUNT(*)
+    FROM certificates WHERE revoked = FALSE GROUP BY live_class_id
+) counts ON counts.live_class_id = lc.id
+GROUP BY lc.educator_id;
@@ -0,0 +1,150 @@
+-- Per-class retention histogram over 20 fixed buckets of the recording (5% each):
+--   stopped_count  students whose resume position falls in the bucket (drop-off)
+--   watched_count  students who watched any segment of the bucket (retention curve)
+-- Maintained incrementally by a trigger on watch_progress, in the same transaction as the heartbeat.
+CREATE TABLE class_retention (
+    live_class_id UUID NOT NULL REFERENCES live_classes(id) ON DELETE CASCADE,
+    bucket SMALLINT NOT NULL,
+    stopped_count BIGINT NOT NULL DEFAULT 0,
+    watched_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (live_class_id, bucket)
+);
+
+CREATE OR REPLACE FUNCTION class_retention_bucket(second_offset BIGINT, total_seconds INTEGER)
+RETURNS INTEGER AS $$
+    SELECT LEAST(19, GREATEST(second_offset, 0) * 20 / total_seconds)::INTEGER;
+$$ LANGUAGE sql IMMUTABLE;
+
+-- Whether any segment in [first_segment, last_segment] is covered
+CREATE OR REPLACE FUNCTION watch_coverage_any(coverage BYTEA, first_segment INTEGER, last_segment INTEGER)
+RETURNS BOOLEAN AS $$
+DECLARE
+    seg INTEGER := GREATEST(first_segment, 0);
+    stop INTEGER := LEAST(last_segment, length(coverage) * 8 - 1);
+BEGIN
+    WHILE seg <= stop LOOP
+        IF seg % 8 = 0 AND seg + 7 <= stop THEN
+            IF get_byte(coverage, seg / 8) <> 0 THEN
+                RETURN TRUE;
+            END IF;
+            seg := seg + 8;
+        ELSE
+            IF get_bit(coverage, seg) = 1 THEN
+                RETURN TRUE;
+            END IF;
+            seg := seg + 1;
+        END IF;
+    END LOOP;
+    RETURN FALSE;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+-- Whether a student watched any part of a bucket
+CREATE OR REPLACE FUNCTION class_retention_watched(coverage BYTEA, bucket INTEGER, total_seconds INTEGER)
+RETURNS BOOLEAN AS $$
+    SELECT watch_coverage_any(coverage,
+                              (CAST(bucket AS BIGINT) * total_seconds / 20 / 5)::INTEGER,
+                              ((CAST(bucket + 1 AS BIGINT) * total_seconds / 20 - 1) / 5)::INTEGER);
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION class_retention_add(p_live_class_id UUID, p_bucket INTEGER,
+                                               p_stopped BIGINT, p_watched BIGINT)
+RETURNS VOID AS $$
+BEGIN
+    INSERT INTO class_retention AS r (live_class_id, bucket, stopped_count, watched_count)
+    VALUES (p_live_class_id, p_bucket, p_stopped, p_watched)
+    ON CONFLICT (live_class_id, bucket) DO UPDATE SET
+        stopped_count = r.stopped_count + EXCLUDED.stopped_count,
+        watched_count = r.watched_count + EXCLUDED.watched_count;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Add (p_sign = 1) or remove (p_sign = -1) one progress row's full contribution
+CREATE OR REPLACE FUNCTION class_retention_apply_row(p_live_class_id UUID, p_coverage BYTEA,
+                                                     p_last_position INTEGER, p_total_seconds INTEGER,
+                                                     p_sign INTEGER)
+RETURNS VOID AS $$
+BEGIN
+    IF p_total_seconds IS NULL OR p_total_seconds <= 0 THEN
+        RETURN;
+    END IF;
+    PERFORM class_retention_add(p_live_class_id, class_retention_bucket(p_last_position, p_total_seconds), p_sign, 0);
+    FOR b IN 0 .. 19 LOOP
+        IF class_retention_watched(p_coverage, b, p_total_seconds) THEN
+            PERFORM class_retention_add(p_live_class_id, b, 0, p_sign);
+        END IF;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION class_retention_track()
+RETURNS TRIGGER AS $$
+DECLARE
+    total INTEGER;
+    old_bucket INTEGER;
+    new_bucket INTEGER;
+    last_checked INTEGER := -1;
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM class_retention_apply_row(NEW.live_class_id, NEW.coverage, NEW.last_position,
+                                          NEW.total_duration_seconds, 1);
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        PERFORM class_retention_apply_row(OLD.live_class_id, OLD.coverage, OLD.last_position,
+                                          OLD.total_duration_seconds, -1);
+        RETURN NULL;
+    END IF;
+
+    -- A changed duration moves every bucket boundary, so re-count the row
+    IF NEW.total_duration_seconds IS DISTINCT FROM OLD.total_duration_seconds THEN
+        PERFORM class_retention_apply_row(OLD.live_class_id, OLD.coverage, OLD.last_position,
+                                          OLD.total_duration_seconds, -1);
+        PERFORM class_retention_apply_row(NEW.live_class_id, NEW.coverage, NEW.last_position,
+                                          NEW.total_duration_seconds, 1);
+        RETURN NULL;
+    END IF;
+
+    total := NEW.total_duration_seconds;
+    IF total IS NULL OR total <= 0 THEN
+        RETURN NULL;
+    END IF;
+
+    old_bucket := class_retention_bucket(OLD.last_position, total);
+    new_bucket := class_retention_bucket(NEW.last_position, total);
+    IF old_bucket <> new_bucket THEN
+        PERFORM class_retention_add(NEW.live_class_id, old_bucket, -1, 0);
+        PERFORM class_retention_add(NEW.live_class_id, new_bucket, 1, 0);
+    END IF;
+
+    -- Coverage only grows; only buckets overlapping a changed byte can have become watched.
+    -- Each coverage byte spans 8 segments of 5 seconds.
+    IF NEW.coverage IS DISTINCT FROM OLD.coverage THEN
+        FOR i IN 0 .. length(NEW.coverage) - 1 LOOP
+            IF i >= length(OLD.coverage) OR get_byte(NEW.coverage, i) <> get_byte(OLD.coverage, i) THEN
+                FOR b IN GREATEST(class_retention_bucket(i * 40, total), last_checked + 1)
+                        .. class_retention_bucket(i * 40 + 39, total) LOOP
+                    last_checked := b;
+                    IF NOT class_retention_watched(OLD.coverage, b, total)
+                            AND class_retention_watched(NEW.coverage, b, total) THEN
+                        PERFORM class_retention_add(NEW.live_class_id, b, 0, 1);
+                    END IF;
+                END LOOP;
+            END IF;
+        END LOOP;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER track_class_retention
+    AFTER INSERT OR UPDATE OF last_position, coverage, total_duration_seconds OR DELETE ON watch_progress
+    FOR EACH ROW EXECUTE FUNCTION class_retention_track();
+
+-- Seed from the current progress rows
+DO $$
+BEGIN
+    PERFORM class_retention_apply_row(live_class_id, coverage, last_position, total_duration_seconds, 1)
+    FROM watch_progress;
+END;
+$$;
@@ -0,0 +1,111 @@
+package com.lumera.academy.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the word-level bitmap against {@link BitSet}, whose little-endian, trailing-zero-trimmed
+ * byte encoding is the one persisted in watch_progress.coverage.
+ */
+class WatchCoverageTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void decodeAndEncodeRoundTrip() {
+        for (int length = 0; length <= 40; length++) {
+            BitSet expected = randomBits(length * 8);
+
+            assertThat(WatchCoverage.decode(expected.toByteArray()).toBytes())
+                    .as("length %d", length)
+                    .isEqualTo(expected.toByteArray());
+        }
+    }
+
+    @Test
+    void toBytesTrimsTrailingZeroBytes() {
+        WatchCoverage coverage = WatchCoverage.decode(new byte[]{0x01, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+
+        assertThat(coverage.toBytes()).containsExactly(0x01);
+        assertThat(WatchCoverage.empty().toBytes()).isEmpty();
+        assertThat(WatchCoverage.decode(null).toBytes()).isEmpty();
+    }
+
+    @Test
+    void orMatchesBitwiseOrAcrossWordBoundaries() {
+        for (int left = 0; left <= 24; left++) {
+            for (int right = 0; right <= 24; right++) {
+                BitSet a = randomBits(left * 8);
+                BitSet b = randomBits(right * 8);
+                BitSet expected = (BitSet) a.clone();
+                expected.or(b);
+
+                WatchCoverage coverage = WatchCoverage.decode(a.toByteArray());
+                coverage.or(b.toByteArray());
+
+                assertThat(coverage.toBytes()).as("%d | %d bytes", left, right).isEqualTo(expected.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    void markSecondsSetsOverlappingSegments() {
+        int[][] ranges = {{0, 1}, {0, 5}, {4, 6}, {315, 325}, {316, 644}, {0, 640}, {3, 3000}, {635, 645}};
+        for (int[] range : ranges) {
+            WatchCoverage coverage = WatchCoverage.empty();
+            coverage.markSeconds(range[0], range[1]);
+
+            BitSet expected = new BitSet();
+            expected.set(range[0] / WatchCoverage.SEGMENT_SECONDS, (range[1] - 1) / WatchCoverage.SEGMENT_SECONDS + 1);
+            assertThat(coverage.toBytes()).as("%d-%d", range[0], range[1]).isEqualTo(expected.toByteArray());
+        }
+    }
+
+    @Test
+    void markSecondsIgnoresEmptyAndOutOfRangeSeconds() {
+        WatchCoverage coverage = WatchCoverage.empty();
+        coverage.markSeconds(10, 10);
+        coverage.markSeconds(20, 5);
+        coverage.markSeconds(-50, 0);
+        assertThat(coverage.toBytes()).isEmpty();
+
+        coverage.markSeconds(WatchCoverage.MAX_RECORDING_SECONDS - 5, Integer.MAX_VALUE);
+        assertThat(coverage.toBytes()).hasSize(WatchCoverage.MAX_RECORDING_SECONDS / WatchCoverage.SEGMENT_SECONDS / 8);
+    }
+
+    @Test
+    void cardinalityCountsOnlyBelowLimit() {
+        BitSet bits = randomBits(300);
+        WatchCoverage coverage = WatchCoverage.decode(bits.toByteArray());
+
+        for (int limit = 0; limit <= 320; limit++) {
+            assertThat(coverage.cardinality(limit)).as("limit %d", limit).isEqualTo(bits.get(0, limit).cardinality());
+        }
+    }
+
+    @Test
+    void advanceCreditsContinuousPlaybackOnly() {
+        WatchCoverage coverage = WatchCoverage.empty();
+
+        assertThat(coverage.advance(0, 50, 100)).isTrue();
+        assertThat(coverage.percentage(100)).isEqualTo(50.0);
+        assertThat(coverage.advance(50, 50 + WatchCoverage.MAX_CONTIGUOUS_GAP_SECONDS + 1, 1000)).isFalse();
+        assertThat(coverage.advance(60, 40, 100)).isFalse();
+        assertThat(coverage.advance(90, Integer.MAX_VALUE, 100)).isTrue();
+        assertThat(coverage.percentage(100)).isEqualTo(60.0);
+    }
+
+    private BitSet randomBits(int size) {
+        BitSet bits = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            if (random.nextBoolean()) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+}
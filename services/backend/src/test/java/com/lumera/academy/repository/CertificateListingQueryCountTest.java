@@ -0,0 +1,133 @@
+package com.lumera.academy.repository;
+
+import com.lumera.academy.dto.CertificateDTO;
+import com.lumera.academy.entity.Certificate;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Certificate listings must load a page in a fixed number of statements, however many rows
+ * it holds and however many students, classes and educators they reference.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers
+class CertificateListingQueryCountTest {
+
+    private static final int CLASSES = 10;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private CertificateRepository certificateRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private UUID studentId;
+    private UUID educatorId;
+
+    // One student with a certificate in each of the educator's classes; every class also
+    // has a certificate for a student of its own
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        educatorId = insertUser("EDUCATOR");
+        studentId = insertUser("STUDENT");
+        for (int i = 0; i < CLASSES; i++) {
+            UUID liveClassId = UUID.randomUUID();
+            jdbcTemplate.update("""
+                    INSERT INTO live_classes (id, title, description, price, duration_minutes, scheduled_at,
+                                              educator_id, category_id)
+                    VALUES (?, ?, 'd', 0, 60, NOW(), ?, (SELECT id FROM categories LIMIT 1))
+                    """, liveClassId, "Class " + i, educatorId);
+            insertCertificate(studentId, liveClassId);
+            insertCertificate(insertUser("STUDENT"), liveClassId);
+        }
+    }
+
+    @Test
+    void studentListingStatementsDoNotGrowWithPageSize() {
+        long small = statementsFor(size -> certificateRepository.findByUserIdAndRevokedFalse(studentId, PageRequest.of(0, size)), 2);
+        long large = statementsFor(size -> certificateRepository.findByUserIdAndRevokedFalse(studentId, PageRequest.of(0, size)), 8);
+
+        assertThat(large).isEqualTo(small);
+        // The page select and its count
+        assertThat(large).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void educatorListingStatementsDoNotGrowWithPageSize() {
+        long small = statementsFor(size -> certificateRepository.findByEducatorId(educatorId, PageRequest.of(0, size)), 2);
+        long large = statementsFor(size -> certificateRepository.findByEducatorId(educatorId, PageRequest.of(0, size)), 16);
+
+        assertThat(large).isEqualTo(small);
+        assertThat(large).isLessThanOrEqualTo(2);
+    }
+
+    // Statements prepared to load one page and map it the way the listing endpoints do
+    private long statementsFor(Function<Integer, Page<Certificate>> query, int pageSize) {
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<Certificate> page = query.apply(pageSize);
+        List<CertificateDTO> certificates = page.map(CertificateDTO::fromEntity).getContent();
+
+        assertThat(certificates).hasSize(pageSize);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private UUID insertUser(String role) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO users (id, first_name, last_name, email, password_hash, role)
+                VALUES (?, 'Test', ?, ?, 'x', ?)
+                """, id, role, id + "@example.com", role);
+        return id;
+    }
+
+    private void insertCertificate(UUID userId, UUID liveClassId) {
+        jdbcTemplate.update("""
+                INSERT INTO certificates (certificate_number, user_id, live_class_id)
+                VALUES (?, ?, ?)
+                """, "TEST-" + UUID.randomUUID(), userId, liveClassId);
+    }
+}
@@ -0,0 +1,210 @@
+package com.lumera.academy.repository;
+
+import com.lumera.academy.entity.WatchCoverage;
+import com.lumera.academy.entity.WatchProgress;
+import com.lumera.academy.repository.WatchProgressRepository.UpsertResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the native watch-progress upsert against PostgreSQL, since the coverage helpers
+ * and ON CONFLICT semantics only exist there.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WatchProgressUpsertTest {
+
+    private static final int TOTAL_DURATION = 100;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private WatchProgressRepository watchProgressRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private UUID userId;
+    private UUID liveClassId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        userId = UUID.randomUUID();
+        liveClassId = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO users (id, first_name, last_name, email, password_hash, role)
+                VALUES (?, 'Test', 'Student', ?, 'x', 'STUDENT')
+                """, userId, userId + "@example.com");
+        jdbcTemplate.update("""
+                INSERT INTO live_classes (id, title, description, price, duration_minutes, scheduled_at,
+                                          educator_id, category_id)
+                VALUES (?, 'Upsert class', 'd', 0, 60, NOW(), ?, (SELECT id FROM categories LIMIT 1))
+                """, liveClassId, userId);
+    }
+
+    @Test
+    void firstHeartbeatInsertsRow() {
+        UpsertResult result = heartbeat(30, Instant.parse("2026-01-01T10:00:00Z"));
+
+        assertThat(result.getId()).isNotNull();
+        assertThat(result.getClassTitle()).isEqualTo("Upsert class");
+        assertThat(result.getWatchedSeconds()).isEqualTo(30);
+        assertThat(result.getLastPosition()).isEqualTo(30);
+        assertThat(result.getWatchPercentage()).isEqualTo(30.0);
+        assertThat(result.getCompleted()).isFalse();
+        assertThat(result.getWasCompleted()).isFalse();
+        assertThat(watchProgressRepository.findByUserIdAndLiveClassId(userId, liveClassId)).isPresent();
+    }
+
+    @Test
+    void watchedSecondsOnlyMoveForward() {
+        heartbeat(60, Instant.parse("2026-01-01T10:00:00Z"));
+        UpsertResult rewound = heartbeat(20, Instant.parse("2026-01-01T10:00:30Z"));
+
+        assertThat(rewound.getWatchedSeconds()).isEqualTo(60);
+        assertThat(rewound.getLastPosition()).isEqualTo(20);
+        assertThat(rewound.getWatchPercentage()).isEqualTo(60.0);
+    }
+
+    @Test
+    void crossingThresholdReportsTransitionOnce() {
+        UpsertResult before = heartbeat(80, Instant.parse("2026-01-01T10:00:00Z"));
+        UpsertResult crossing = heartbeat(95, Instant.parse("2026-01-01T10:00:15Z"));
+        UpsertResult after = heartbeat(100, Instant.parse("2026-01-01T10:00:20Z"));
+
+        assertThat(before.getCompleted()).isFalse();
+        assertThat(crossing.getCompleted()).isTrue();
+        assertThat(crossing.getWasCompleted()).isFalse();
+        assertThat(crossing.getCompletedAt()).isEqualTo(Instant.parse("2026-01-01T10:00:15Z"));
+        assertThat(after.getCompleted()).isTrue();
+        assertThat(after.getWasCompleted()).isTrue();
+        assertThat(after.getCompletedAt()).isEqualTo(crossing.getCompletedAt());
+    }
+
+    @Test
+    void concurrentHeartbeatsCompleteExactlyOnce() throws Exception {
+        heartbeat(85, Instant.parse("2026-01-01T10:00:00Z"));
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<UpsertResult> first = executor.submit(() -> {
+                start.await();
+                return heartbeat(95, Instant.parse("2026-01-01T10:00:10Z"));
+            });
+            Future<UpsertResult> second = executor.submit(() -> {
+                start.await();
+                return heartbeat(100, Instant.parse("2026-01-01T10:00:15Z"));
+            });
+            start.countDown();
+
+            List<UpsertResult> results = List.of(first.get(30, TimeUnit.SECONDS), second.get(30, TimeUnit.SECONDS));
+            assertThat(results).allMatch(UpsertResult::getCompleted);
+            assertThat(results).filteredOn(result -> !result.getWasCompleted()).hasSize(1);
+            assertThat(results).extracting(UpsertResult::getCompletedAt).containsOnly(results.stream()
+                    .filter(result -> !result.getWasCompleted())
+                    .findFirst().orElseThrow().getCompletedAt());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void coverageIsBoundedByRecording() {
+        heartbeat(10, Instant.parse("2026-01-01T10:00:00Z"));
+        UpsertResult result = heartbeat(Integer.MAX_VALUE, Instant.parse("2026-01-01T10:00:05Z"));
+
+        byte[] coverage = jdbcTemplate.queryForObject(
+                "SELECT coverage FROM watch_progress WHERE id = ?", byte[].class, result.getId());
+        assertThat(coverage).hasSizeLessThanOrEqualTo((TOTAL_DURATION + 39) / 40);
+        assertThat(result.getLastPosition()).isEqualTo(TOTAL_DURATION);
+        assertThat(result.getWatchPercentage()).isLessThanOrEqualTo(100.0);
+    }
+
+    @Test
+    void coverageFunctionsMatchJavaBitmap() {
+        int[][] ranges = {{0, 5}, {7, 83}, {40, 41}, {3, 3000}, {1000, 1150}};
+        for (int[] range : ranges) {
+            WatchCoverage expected = WatchCoverage.empty();
+            expected.or(new byte[]{(byte) 0x81});
+            expected.advance(range[0], range[1], 3600);
+            byte[] advanced = jdbcTemplate.queryForObject(
+                    "SELECT watch_coverage_advance(decode('81', 'hex'), ?, ?, ?, 3600)", byte[].class,
+                    range[0], range[1], WatchCoverage.MAX_CONTIGUOUS_GAP_SECONDS);
+            assertThat(advanced).as("advance %d-%d", range[0], range[1])
+                    .isEqualTo(padded(expected.toBytes(), advanced.length));
+        }
+
+        byte[] merged = jdbcTemplate.queryForObject(
+                "SELECT watch_coverage_or(decode('0f0001', 'hex'), decode('f080', 'hex'))", byte[].class);
+        assertThat(merged).containsExactly(0xff, 0x80, 0x01);
+
+        byte[][][] pairs = {
+                {{}, {0x05}},
+                {{0x05}, {}},
+                {{0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09}, {(byte) 0x80, 0x40}},
+                {{0x00, 0x10}, {0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xff}}
+        };
+        for (byte[][] pair : pairs) {
+            WatchCoverage expected = WatchCoverage.decode(pair[0]);
+            expected.or(pair[1]);
+            byte[] ored = jdbcTemplate.queryForObject("SELECT watch_coverage_or(?, ?)", byte[].class, pair[0], pair[1]);
+            assertThat(ored).isEqualTo(padded(expected.toBytes(), ored.length));
+        }
+    }
+
+    private static byte[] padded(byte[] bytes, int length) {
+        return Arrays.copyOf(bytes, Math.max(bytes.length, length));
+    }
+
+    private UpsertResult heartbeat(int position, Instant now) {
+        WatchCoverage initialCoverage = WatchCoverage.empty();
+        initialCoverage.advance(0, position, TOTAL_DURATION);
+        return transactionTemplate.execute(status -> watchProgressRepository.upsertProgress(userId, liveClassId,
+                position, TOTAL_DURATION, initialCoverage.toBytes(), initialCoverage.percentage(TOTAL_DURATION),
+                WatchCoverage.MAX_CONTIGUOUS_GAP_SECONDS, WatchProgress.COMPLETION_THRESHOLD, now));
+    }
+}
@@ -0,0 +1,164 @@
+package com.lumera.academy.service;
+
+import com.lowagie.text.*;
+import com.lowagie.text.pdf.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Repeatable micro-benchmark of the template renderer against the per-certificate document
+ * build it replaced. Skipped by default; run with
+ * {@code mvn test -Dtest=CertificatePdfRendererBenchmark -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CertificatePdfRendererBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 500;
+    private static final int MEASURED_ITERATIONS = 2000;
+    private static final int ROUNDS = 5;
+
+    private static final Color CHAMPAGNE = new Color(201, 169, 98);
+    private static final Color CHAMPAGNE_DARK = new Color(166, 136, 70);
+    private static final Color CHARCOAL = new Color(51, 51, 51);
+    private static final Color TEXT_MUTED = new Color(107, 114, 128);
+    private static final Color BORDER_GOLD = new Color(212, 175, 55);
+
+    private static final CertificatePdfData DATA = new CertificatePdfData("LBA-2026-000042", "Jane Doe",
+            "Advanced Brow Lamination", "Ana Silva", Instant.parse("2026-03-01T12:00:00Z"));
+
+    @Test
+    void templateRendererIsFasterThanDocumentBuild() {
+        CertificatePdfRenderer renderer = new CertificatePdfRenderer();
+
+        double legacy = measure("legacy generatePdf", () -> generatePdf(DATA));
+        double template = measure("template renderer", () -> renderer.render(DATA));
+
+        System.out.printf("template renderer speedup: %.2fx%n", legacy / template);
+        assertThat(template).isLessThan(legacy);
+    }
+
+    // Best of several rounds, in microseconds per certificate
+    private static double measure(String name, Supplier<byte[]> render) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += render.get().length;
+        }
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                sink += render.get().length;
+            }
+            best = Math.min(best, (System.nanoTime() - start) / 1000.0 / MEASURED_ITERATIONS);
+        }
+        System.out.printf("%-20s %8.1f us/certificate (%d bytes rendered)%n", name, best, sink);
+        return best;
+    }
+
+    /**
+     * The certificate rendering CertificateService used before the template renderer: the whole
+     * page is laid out with paragraphs and a table for every certificate.
+     */
+    private static byte[] generatePdf(CertificatePdfData data) {
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            Document document = new Document(PageSize.A4.rotate(), 60, 60, 60, 60);
+            PdfWriter writer = PdfWriter.getInstance(document, baos);
+            document.open();
+
+            PdfContentByte canvas = writer.getDirectContent();
+            float pageWidth = PageSize.A4.getHeight();
+            float pageHeight = PageSize.A4.getWidth();
+
+            canvas.setColorStroke(BORDER_GOLD);
+            canvas.setLineWidth(3);
+            canvas.rectangle(30, 30, pageWidth - 60, pageHeight - 60);
+            canvas.stroke();
+            canvas.setLineWidth(1);
+            canvas.rectangle(40, 40, pageWidth - 80, pageHeight - 80);
+            canvas.stroke();
+            drawCornerDecoration(canvas, 50, pageHeight - 50, true, true);
+            drawCornerDecoration(canvas, pageWidth - 50, pageHeight - 50, false, true);
+            drawCornerDecoration(canvas, 50, 50, true, false);
+            drawCornerDecoration(canvas, pageWidth - 50, 50, false, false);
+
+            document.add(new Paragraph("\n\n"));
+            addCentered(document, "CERTIFICATE OF", new Font(Font.HELVETICA, 14, Font.NORMAL, TEXT_MUTED), 0);
+            addCentered(document, "COMPLETION", new Font(Font.HELVETICA, 42, Font.BOLD, CHAMPAGNE), 30);
+            addCentered(document, "✦ ✦ ✦", new Font(Font.ZAPFDINGBATS, 12, Font.NORMAL, CHAMPAGNE), 25);
+            Font introFont = new Font(Font.HELVETICA, 14, Font.NORMAL, TEXT_MUTED);
+            addCentered(document, "This is to certify that", introFont, 15);
+            addCentered(document, data.studentName(), new Font(Font.HELVETICA, 32, Font.BOLD, CHARCOAL), 15);
+            addCentered(document, "has successfully completed", introFont, 15);
+            addCentered(document, data.className(), new Font(Font.HELVETICA, 22, Font.BOLD, CHAMPAGNE_DARK), 30);
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMMM d, yyyy").withZone(ZoneId.systemDefault());
+            addCentered(document, "Issued on " + formatter.format(data.issuedAt()),
+                    new Font(Font.HELVETICA, 12, Font.NORMAL, TEXT_MUTED), 40);
+
+            PdfPTable sigTable = new PdfPTable(2);
+            sigTable.setWidthPercentage(60);
+            sigTable.setHorizontalAlignment(Element.ALIGN_CENTER);
+            Font sigTitleFont = new Font(Font.HELVETICA, 10, Font.NORMAL, TEXT_MUTED);
+            sigTable.addCell(signatureCell(data.educatorName(), new Font(Font.HELVETICA, 12, Font.BOLD, CHARCOAL),
+                    "Educator", sigTitleFont));
+            sigTable.addCell(signatureCell("Luméra Beauty Academy", new Font(Font.HELVETICA, 12, Font.BOLD, CHAMPAGNE),
+                    "Official Certificate", sigTitleFont));
+            document.add(sigTable);
+
+            ColumnText.showTextAligned(canvas, Element.ALIGN_CENTER,
+                    new Phrase("Certificate ID: " + data.certificateNumber(),
+                            new Font(Font.HELVETICA, 9, Font.NORMAL, TEXT_MUTED)), pageWidth / 2, 55, 0);
+            ColumnText.showTextAligned(canvas, Element.ALIGN_CENTER,
+                    new Phrase("Verify at lumera.academy/verify/" + data.certificateNumber(),
+                            new Font(Font.HELVETICA, 8, Font.ITALIC, TEXT_MUTED)), pageWidth / 2, 42, 0);
+
+            document.close();
+            return baos.toByteArray();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to generate certificate PDF", e);
+        }
+    }
+
+    private static void drawCornerDecoration(PdfContentByte canvas, float x, float y, boolean left, boolean top) {
+        canvas.setColorStroke(CHAMPAGNE);
+        canvas.setLineWidth(2);
+        float hDir = left ? 1 : -1;
+        float vDir = top ? -1 : 1;
+        canvas.moveTo(x, y + (20 * vDir));
+        canvas.lineTo(x, y);
+        canvas.lineTo(x + (20 * hDir), y);
+        canvas.stroke();
+    }
+
+    private static void addCentered(Document document, String text, Font font, float spacingAfter)
+            throws DocumentException {
+        Paragraph paragraph = new Paragraph(text, font);
+        paragraph.setAlignment(Element.ALIGN_CENTER);
+        paragraph.setSpacingAfter(spacingAfter);
+        document.add(paragraph);
+    }
+
+    private static PdfPCell signatureCell(String name, Font nameFont, String title, Font titleFont) {
+        PdfPCell cell = new PdfPCell();
+        cell.setBorder(Rectangle.TOP);
+        cell.setBorderColor(CHARCOAL);
+        cell.setBorderWidth(1);
+        cell.setPaddingTop(10);
+        cell.setHorizontalAlignment(Element.ALIGN_CENTER);
+        Paragraph nameParagraph = new Paragraph(name, nameFont);
+        nameParagraph.setAlignment(Element.ALIGN_CENTER);
+        cell.addElement(nameParagraph);
+        Paragraph titleParagraph = new Paragraph(title, titleFont);
+        titleParagraph.setAlignment(Element.ALIGN_CENTER);
+        cell.addElement(titleParagraph);
+        return cell;
+    }
+}
@@ -0,0 +1,53 @@
+package com.lumera.academy.service;
+
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CertificatePdfRendererTest {
+
+    private final CertificatePdfRenderer renderer = new CertificatePdfRenderer();
+
+    @Test
+    void rendersOnePageWithStampedFields() throws Exception {
+        byte[] pdf = renderer.render(data("LBA-2026-000042"));
+
+        PdfReader reader = new PdfReader(pdf);
+        assertThat(reader.getNumberOfPages()).isEqualTo(1);
+        String text = new PdfTextExtractor(reader).getTextFromPage(1);
+        assertThat(text).contains("Jane Doe", "Advanced Brow Lamination", "LBA-2026-000042");
+        reader.close();
+    }
+
+    @Test
+    void concurrentRendersShareTemplateSafely() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> results = IntStream.range(0, 64)
+                    .mapToObj(i -> executor.submit(() -> renderer.render(data("LBA-2026-" + String.format("%06d", i)))))
+                    .toList();
+            for (int i = 0; i < results.size(); i++) {
+                PdfReader reader = new PdfReader(results.get(i).get());
+                assertThat(new PdfTextExtractor(reader).getTextFromPage(1))
+                        .contains("LBA-2026-" + String.format("%06d", i));
+                reader.close();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static CertificatePdfData data(String number) {
+        return new CertificatePdfData(number, "Jane Doe", "Advanced Brow Lamination", "Ana Silva",
+                Instant.parse("2026-03-01T12:00:00Z"));
+    }
+}